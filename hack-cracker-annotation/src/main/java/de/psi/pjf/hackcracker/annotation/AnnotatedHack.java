@@ -0,0 +1,178 @@
+package de.psi.pjf.hackcracker.annotation;
+
+import de.psi.pjf.hackcracker.jira.IssueKey;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.Parameterizable;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.util.Elements;
+
+/**
+ * Everything the processor needs to know about one annotated element, collected
+ * in a single pass over its annotation mirrors. Mirrors are told apart by the
+ * identity of their annotation types, the annotations themselves are read once.
+ */
+class AnnotatedHack
+{
+    private static final FixForIssue[] NO_ISSUES = new FixForIssue[0];
+
+    private final Element element;
+    private final AnnotationMirror fixForIssueMirror;
+    private final AnnotationMirror fixForIssuesMirror;
+    private final AnnotationMirror ignoreMirror;
+    private final FixForIssue[] issues;
+    private final FixForIssues fixForIssues;
+    private final IgnoreIssueResolved ignore;
+    private final Set<IssueKey> keys;
+
+    private AnnotatedHack(Element aElement, AnnotationMirror aFixForIssueMirror, AnnotationMirror aFixForIssuesMirror,
+                          AnnotationMirror aIgnoreMirror)
+    {
+        element = aElement;
+        fixForIssueMirror = aFixForIssueMirror;
+        fixForIssuesMirror = aFixForIssuesMirror;
+        ignoreMirror = aIgnoreMirror;
+        issues = fixForIssueMirror == null && fixForIssuesMirror == null
+                ? NO_ISSUES
+                : element.getAnnotationsByType(FixForIssue.class);
+        fixForIssues = fixForIssuesMirror == null ? null : element.getAnnotation(FixForIssues.class);
+        ignore = ignoreMirror == null ? null : element.getAnnotation(IgnoreIssueResolved.class);
+        Set<IssueKey> issueKeys = new LinkedHashSet<>();
+        for (FixForIssue issue : issues)
+        {
+            issueKeys.add(IssueKey.of(issue));
+        }
+        keys = Collections.unmodifiableSet(issueKeys);
+    }
+
+    /**
+     * @param e annotated element.
+     * @param fixForIssueType type of {@link FixForIssue}.
+     * @param fixForIssuesType type of {@link FixForIssues}.
+     * @param ignoreType type of {@link IgnoreIssueResolved}.
+     */
+    static AnnotatedHack of(Element e, TypeElement fixForIssueType, TypeElement fixForIssuesType, TypeElement ignoreType)
+    {
+        AnnotationMirror fixForIssue = null;
+        AnnotationMirror fixForIssues = null;
+        AnnotationMirror ignore = null;
+        for (AnnotationMirror mirror : e.getAnnotationMirrors())
+        {
+            Element type = mirror.getAnnotationType().asElement();
+            if (type.equals(fixForIssueType))
+            {
+                fixForIssue = mirror;
+            }
+            else if (type.equals(fixForIssuesType))
+            {
+                fixForIssues = mirror;
+            }
+            else if (type.equals(ignoreType))
+            {
+                ignore = mirror;
+            }
+        }
+        return new AnnotatedHack(e, fixForIssue, fixForIssues, ignore);
+    }
+
+    /**
+     * Compilers enter the members of all types anew in every round, older ones
+     * even the types, which leaves the elements and mirrors of earlier rounds
+     * without their source positions.
+     * @param elements utilities of the current round.
+     * @return the same hack as entered in the current round.
+     */
+    AnnotatedHack reload(Elements elements, TypeElement fixForIssueType, TypeElement fixForIssuesType,
+                         TypeElement ignoreType)
+    {
+        Element topLevelElement = VerdictIndex.getTopLevelElement(element);
+        Element current = topLevelElement instanceof PackageElement
+                ? elements.getPackageElement(((PackageElement) topLevelElement).getQualifiedName())
+                : elements.getTypeElement(((TypeElement) topLevelElement).getQualifiedName());
+        Element found = current == null ? null : find(current, VerdictIndex.signature(element));
+        return of(found == null ? element : found, fixForIssueType, fixForIssuesType, ignoreType);
+    }
+
+    private static Element find(Element scope, String signature)
+    {
+        if (VerdictIndex.signature(scope).equals(signature))
+        {
+            return scope;
+        }
+        List<Element> enclosed = new ArrayList<>(scope.getEnclosedElements());
+        if (scope instanceof ExecutableElement)
+        {
+            enclosed.addAll(((ExecutableElement) scope).getParameters());
+        }
+        if (scope instanceof Parameterizable)
+        {
+            enclosed.addAll(((Parameterizable) scope).getTypeParameters());
+        }
+        for (Element e : enclosed)
+        {
+            if (signature.startsWith(VerdictIndex.signature(e)))
+            {
+                Element found = find(e, signature);
+                if (found != null)
+                {
+                    return found;
+                }
+            }
+        }
+        return null;
+    }
+
+    Element getElement()
+    {
+        return element;
+    }
+
+    /**
+     * @return all issues of the element, whether repeated or not.
+     */
+    FixForIssue[] getIssues()
+    {
+        return issues;
+    }
+
+    Set<IssueKey> getKeys()
+    {
+        return keys;
+    }
+
+    /**
+     * @return the container of repeated issues, null if there is none.
+     */
+    FixForIssues getFixForIssues()
+    {
+        return fixForIssues;
+    }
+
+    /**
+     * @return null if the element is not annotated with {@link IgnoreIssueResolved}.
+     */
+    IgnoreIssueResolved getIgnore()
+    {
+        return ignore;
+    }
+
+    AnnotationMirror getIgnoreMirror()
+    {
+        return ignoreMirror;
+    }
+
+    /**
+     * @return the mirror messages about the issues of the element point to.
+     */
+    AnnotationMirror getReportedMirror()
+    {
+        return fixForIssuesMirror != null ? fixForIssuesMirror : fixForIssueMirror != null ? fixForIssueMirror : ignoreMirror;
+    }
+}
@@ -31,6 +31,18 @@ import java.lang.annotation.Repeatable;
  * Currently only simple authentication is supported.
  * If there won't be a configuration for a particular instance, then anonymous connection will be tried, so for
  * publicly available issuetrackers, no configuration is needed.
+ * GitHub repositories are configured the same way with a {@code <github>} element, its password is the access token.
+ * GitHub answers only requests with an access token, so public repositories need one too; a token that can read
+ * issues is enough.
+ * Issues count as resolved with one of the resolutions listed in the {@code resolvedResolutions} attribute of
+ * the configuration ({@code Done,Fixed} by default).
+ * Retrieved resolutions are cached in {@code ~/.hackcracker/cache} and reused by all compilations for 
+ * {@code cacheTtlMinutes} (attribute of the configuration, 60 minutes by default).
+ * Builds without access to the issuetracker can check against a snapshot file instead, written in advance by
+ * {@code de.psi.pjf.hackcracker.jira.SnapshotGenerator} and selected with the {@code offlineSnapshot} attribute
+ * of the configuration or the system property {@code hackcracker.offlineSnapshot}. Snapshots named {@code *.idx}
+ * are binary indexes mapped into memory; with the {@code statusIndex} attribute such an index is consulted
+ * before the cache and the issuetracker in online builds too.
  * This is a compiletime only annotation, so it is expected to be referrenced only on compiletime, for example 
  * in maven you get such effect by using the scope provided.
  * {@code 
@@ -62,12 +74,26 @@ public @interface FixForIssue
     
     /**
      * This parameter specifies what issuetracker type the issue is in. 
-     * Currently only atlassian jira is supported.
+     * Atlassian jira and GitHub are supported, for GitHub the url is the url of the repository
+     * and the issue is its number.
      * @return 
      */
     IssueTrackerType trackerType() default JIRA;
     
+    /**
+     * This parameter specifies the type of an issuetracker that is not one of the {@link IssueTrackerType}s,
+     * served by a backend added to the class path of the annotation processor. If given, it is used instead
+     * of the trackerType.
+     * @return 
+     */
+    String customTrackerType() default "";
+    
+    /**
+     * Each type is served by the {@code de.psi.pjf.hackcracker.tracker.IssueTracker} backend
+     * of the same name, just like the custom tracker types.
+     */
     public static enum IssueTrackerType{
-        JIRA;
+        JIRA,
+        GITHUB;
     }
 }
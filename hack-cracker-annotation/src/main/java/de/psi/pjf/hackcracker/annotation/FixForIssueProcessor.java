@@ -1,11 +1,27 @@
 package de.psi.pjf.hackcracker.annotation;
 
 import de.psi.pjf.hackcracker.annotation.configuration.IssueTrackerConfiguration;
+import de.psi.pjf.hackcracker.jira.IssueKey;
 import de.psi.pjf.hackcracker.jira.JiraIssueChecker;
+import de.psi.pjf.hackcracker.jira.LookupMetrics;
+import de.psi.pjf.hackcracker.jira.MessageBuilder;
+import de.psi.pjf.hackcracker.tracker.IssueStatus;
+import java.io.IOException;
 import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import javax.annotation.processing.AbstractProcessor;
@@ -13,9 +29,9 @@ import javax.annotation.processing.RoundEnvironment;
 import javax.annotation.processing.SupportedAnnotationTypes;
 import javax.annotation.processing.SupportedSourceVersion;
 import static javax.lang.model.SourceVersion.RELEASE_8;
-import javax.lang.model.element.AnnotationMirror;
 import javax.lang.model.element.Element;
 import javax.lang.model.element.TypeElement;
+import javax.lang.model.util.Elements;
 import javax.tools.Diagnostic;
 import static javax.tools.Diagnostic.Kind.ERROR;
 import static javax.tools.Diagnostic.Kind.MANDATORY_WARNING;
@@ -32,168 +48,345 @@ import static javax.tools.Diagnostic.Kind.WARNING;
     "de.psi.pjf.hackcracker.annotation.IgnoreIssueResolved"})
 public class FixForIssueProcessor extends AbstractProcessor
 {
+    /**
+     * Remembers every issue retrieved during the whole compilation, so each
+     * issue is retrieved only once no matter how often and in how many rounds
+     * it is referenced. Created together with the configuration for the first
+     * annotated element, compilations without any do not read the configuration.
+     */
+    private JiraIssueChecker jiraIssueChecker;
+    
+    private IssueTrackerConfiguration configuration;
+    
+    /**
+     * Verdicts of earlier compilations reused for issues that are referenced
+     * only by unchanged elements.
+     */
+    private final Map<IssueKey, Boolean> reusedVerdicts = new HashMap<>();
+
+    /**
+     * Issues referenced by changed elements, which are checked again anyway.
+     */
+    private final Set<IssueKey> checkedAgain = new HashSet<>();
+
+    /**
+     * Annotated elements of all rounds, checked and reported in the last round.
+     */
+    private final List<AnnotatedHack> hacks = new ArrayList<>();
+
+    private final List<AnnotatedHack> toCheck = new ArrayList<>();
+
+    private final Map<Element, VerdictIndex> indexes = new LinkedHashMap<>();
+
+    /**
+     * Lookups running in the background while the compilation goes on.
+     */
+    private final List<CompletableFuture<Void>> lookups = new ArrayList<>();
+
+    private TypeElement fixForIssueType;
+    private TypeElement fixForIssuesType;
+    private TypeElement ignoreType;
+
     public FixForIssueProcessor()
     {
     }
 
+    /**
+     * Issues are looked up in the background as soon as their elements are found,
+     * so the issue trackers are called while javac goes on with the following rounds.
+     * Their results are only waited for in the last round, which then reports all
+     * elements at once.
+     */
     @Override
     public boolean process(
             Set<? extends TypeElement> aNnotations, RoundEnvironment aRoundEnv)
     {
-        Stream.concat(
-                aRoundEnv.getElementsAnnotatedWith(FixForIssues.class).stream(), 
-                Stream.concat(
-                        aRoundEnv.getElementsAnnotatedWith(FixForIssue.class).stream(),
-                        aRoundEnv.getElementsAnnotatedWith(IgnoreIssueResolved.class).stream()
-                )
-        ).distinct().forEach(this::processElement);
+        lookUpAnnotationTypes();
+        long start = System.nanoTime();
+        try
+        {
+            if (aRoundEnv.processingOver())
+            {
+                if (jiraIssueChecker != null)
+                {
+                    reportAll();
+                }
+            }
+            else
+            {
+                processRound(aRoundEnv);
+            }
+        }
+        finally
+        {
+            if (jiraIssueChecker != null)
+            {
+                jiraIssueChecker.getMetrics().recordProcessing(System.nanoTime() - start);
+            }
+            if (aRoundEnv.processingOver() && jiraIssueChecker != null)
+            {
+                closeIssueChecker();
+            }
+        }
         return true;
     }
 
-    private void processElement(Element e)
+    /**
+     * Older compilers enter all types anew in every round, so the types are looked up in every round.
+     */
+    private void lookUpAnnotationTypes()
+    {
+        Elements elements = processingEnv.getElementUtils();
+        fixForIssueType = elements.getTypeElement(FixForIssue.class.getCanonicalName());
+        fixForIssuesType = elements.getTypeElement(FixForIssues.class.getCanonicalName());
+        ignoreType = elements.getTypeElement(IgnoreIssueResolved.class.getCanonicalName());
+    }
+
+    private void processRound(RoundEnvironment aRoundEnv)
+    {
+        Map<Element, AnnotatedHack> found = new LinkedHashMap<>();
+        for (TypeElement annotation : Arrays.asList(fixForIssuesType, fixForIssueType, ignoreType))
+        {
+            for (Element e : aRoundEnv.getElementsAnnotatedWith(annotation))
+            {
+                found.computeIfAbsent(e, k -> AnnotatedHack.of(k, fixForIssueType, fixForIssuesType, ignoreType));
+            }
+        }
+        if (found.isEmpty())
+        {
+            return;
+        }
+        if (jiraIssueChecker == null)
+        {
+            configuration = IssueTrackerConfiguration.getConfiguration();
+            jiraIssueChecker = new JiraIssueChecker(configuration);
+        }
+        List<FixForIssue> toLookUp = new ArrayList<>();
+        for (AnnotatedHack hack : found.values())
+        {
+            VerdictIndex index = indexes.computeIfAbsent(VerdictIndex.getTopLevelElement(hack.getElement()), 
+                    t -> VerdictIndex.read(configuration.getCacheDirectory(), t));
+            Optional<Map<IssueKey, Boolean>> verdict = index.reuse(VerdictIndex.signature(hack.getElement()), 
+                    hack.getKeys(), configuration.getCacheTtl());
+            if (verdict.isPresent())
+            {
+                reusedVerdicts.putAll(verdict.get());
+            }
+            else
+            {
+                toCheck.add(hack);
+                toLookUp.addAll(Arrays.asList(hack.getIssues()));
+                checkedAgain.addAll(hack.getKeys());
+            }
+        }
+        hacks.addAll(found.values());
+        lookups.add(jiraIssueChecker.startLookups(toLookUp));
+    }
+
+    private void reportAll()
+    {
+        for (CompletableFuture<Void> lookup : lookups)
+        {
+            try
+            {
+                lookup.join();
+            }
+            catch (CompletionException ex)
+            {
+                // failures are reported for each issue
+            }
+        }
+        reusedVerdicts.keySet().removeAll(checkedAgain);
+        Elements elements = processingEnv.getElementUtils();
+        hacks.forEach(hack -> processElement(hack.reload(elements, fixForIssueType, fixForIssuesType, ignoreType)));
+        toCheck.forEach(hack -> recordVerdict(indexes.get(VerdictIndex.getTopLevelElement(hack.getElement())), hack));
+        for (VerdictIndex index : indexes.values())
+        {
+            try
+            {
+                index.write();
+            }
+            catch (IOException ex)
+            {
+                // without the index the next compilation simply checks everything again
+            }
+        }
+        jiraIssueChecker.constructFallbackMessage().ifPresent(
+                msg -> processingEnv.getMessager().printMessage(MANDATORY_WARNING, msg));
+    }
+
+    /**
+     * Releases the clients of the issue checker even if reporting has failed.
+     */
+    private void closeIssueChecker()
+    {
+        try
+        {
+            reportMetrics();
+        }
+        finally
+        {
+            jiraIssueChecker.close();
+        }
+    }
+
+    private void reportMetrics()
+    {
+        LookupMetrics metrics = jiraIssueChecker.getMetrics();
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.NOTE, metrics.constructSummary());
+        Optional<Path> metricsFile = configuration.getMetricsFile();
+        if (!metricsFile.isPresent())
+        {
+            return;
+        }
+        // not through the filer: a file without an originating element makes incremental builds recompile everything
+        try
+        {
+            Path directory = metricsFile.get().toAbsolutePath().getParent();
+            if (directory != null)
+            {
+                Files.createDirectories(directory);
+            }
+            Files.write(metricsFile.get(), metrics.toJson().getBytes(StandardCharsets.UTF_8));
+        }
+        catch (IOException ex)
+        {
+            processingEnv.getMessager().printMessage(WARNING, 
+                    "hackcracker metrics could not be written to " + metricsFile.get() + ": " + ex.getMessage());
+        }
+    }
+
+    private void recordVerdict(VerdictIndex index, AnnotatedHack hack)
+    {
+        Map<IssueKey, Boolean> verdict = new LinkedHashMap<>();
+        long checkedAt = Long.MAX_VALUE;
+        for (FixForIssue fixForIssue : hack.getIssues())
+        {
+            Optional<IssueStatus> status = jiraIssueChecker.getCheckedStatus(fixForIssue);
+            if (!status.isPresent())
+            {
+                return;
+            }
+            verdict.put(IssueKey.of(fixForIssue), checkIssueIsResolved(fixForIssue));
+            checkedAt = Math.min(checkedAt, status.get().getFetchedAt());
+        }
+        if (!verdict.isEmpty())
+        {
+            index.record(VerdictIndex.signature(hack.getElement()), checkedAt, verdict);
+        }
+    }
+
+    private void processElement(AnnotatedHack hack)
     {
         try
         {
-            if(e.getAnnotation(IgnoreIssueResolved.class) == null){
-                processElementWithoutIgnore(e);
+            if(hack.getIgnore() == null){
+                processElementWithoutIgnore(hack);
             }else{
-                processElementWithIgnore(e);
+                processElementWithIgnore(hack);
             }
         }
         catch (Exception ex)
         {
             processingEnv.getMessager().printMessage(
-                    MANDATORY_WARNING, "there where problems when checking issue: " + ex.getMessage(), e, getCorrectAnnotationMirror(e));
+                    MANDATORY_WARNING, "there where problems when checking issue: " + ex.getMessage(), 
+                    hack.getElement(), hack.getReportedMirror());
         }
     }
 
-    private void processElementWithoutIgnore(Element e) throws URISyntaxException {
-        if(e.getAnnotation(FixForIssues.class) != null)
+    private void processElementWithoutIgnore(AnnotatedHack hack) throws URISyntaxException {
+        if(hack.getFixForIssues() != null)
         {
-            processElementForMultipleIssues(e);
+            processElementForMultipleIssues(hack);
         }
-        else if(e.getAnnotation(FixForIssue.class) != null)
+        else if(hack.getIssues().length > 0)
         {
-            processElementForSingleIssue(e);
+            processElementForSingleIssue(hack);
         }
     }
 
-    private void processElementForMultipleIssues(Element e) throws URISyntaxException {
-        FixForIssues fixForIssues = e.getAnnotation(FixForIssues.class);
-        AnnotationMirror correctAnnotationMirror = getCorrectAnnotationMirror(e);
+    private void processElementForMultipleIssues(AnnotatedHack hack) throws URISyntaxException {
+        FixForIssues fixForIssues = hack.getFixForIssues();
         if(checkIfMultipleIssuesAreResolved(fixForIssues))
         {
             processingEnv.getMessager().printMessage(
-                    IssueTrackerConfiguration.CONFIGURATION.isSwitchOff() ? MANDATORY_WARNING : ERROR, 
+                    configuration.isSwitchOff() ? MANDATORY_WARNING : ERROR, 
                     constructMultipleIssuesMessage(fixForIssues), 
-                    e, correctAnnotationMirror);
-        }else if(IssueTrackerConfiguration.CONFIGURATION.isVerbose()){
+                    hack.getElement(), hack.getReportedMirror());
+        }else if(configuration.isVerbose()){
             processingEnv.getMessager().printMessage(
                     Diagnostic.Kind.NOTE, 
                     constructVerboseMessage(fixForIssues), 
-                    e, correctAnnotationMirror);
+                    hack.getElement(), hack.getReportedMirror());
         }
     }
     
-    private void processElementForSingleIssue(Element e) {
-        FixForIssue fixForIssue = e.getAnnotation(FixForIssue.class);
-        AnnotationMirror correctAnnotationMirror = getCorrectAnnotationMirror(e);
+    private void processElementForSingleIssue(AnnotatedHack hack) {
+        FixForIssue fixForIssue = hack.getIssues()[0];
         if (checkIssueIsResolved(fixForIssue))
         {
-            processingEnv.getMessager().printMessage(IssueTrackerConfiguration.CONFIGURATION.isSwitchOff() ? MANDATORY_WARNING : ERROR, 
-                    constructIssueMessage(fixForIssue), e, correctAnnotationMirror);
-        }else if(IssueTrackerConfiguration.CONFIGURATION.isVerbose()){
+            processingEnv.getMessager().printMessage(configuration.isSwitchOff() ? MANDATORY_WARNING : ERROR, 
+                    constructIssueMessage(fixForIssue), hack.getElement(), hack.getReportedMirror());
+        }else if(configuration.isVerbose()){
             processingEnv.getMessager().printMessage(
                     Diagnostic.Kind.NOTE, 
                     constructVerboseMessage(fixForIssue), 
-                    e, correctAnnotationMirror);
+                    hack.getElement(), hack.getReportedMirror());
         }
     }
     
-    private void processElementWithIgnore(Element e){
-        IgnoreIssueResolved ignore = e.getAnnotation(IgnoreIssueResolved.class);
-        FixForIssue[] fixForIssues = e.getAnnotationsByType(FixForIssue.class);
-        checkIfFixForIssueIsPresent(fixForIssues, e);
-        checkReasonForIgnore(ignore, e);
-        String msg = constructMessageForIgnore(fixForIssues, ignore);
-        processingEnv.getMessager().printMessage(MANDATORY_WARNING, msg, e, getOptionalIgnoreIssueResolvedAnnotationMirror(e).get());
+    private void processElementWithIgnore(AnnotatedHack hack){
+        IgnoreIssueResolved ignore = hack.getIgnore();
+        checkIfFixForIssueIsPresent(hack);
+        checkReasonForIgnore(ignore, hack);
+        String msg = constructMessageForIgnore(hack.getIssues(), ignore);
+        processingEnv.getMessager().printMessage(MANDATORY_WARNING, msg, hack.getElement(), hack.getIgnoreMirror());
     }
 
     private String constructMessageForIgnore(FixForIssue[] fixForIssues, IgnoreIssueResolved ignore) {
         List<FixForIssue> fixedIssues = Stream.of(fixForIssues).filter(this::checkIssueIsResolved).collect(Collectors.toList());
-        String msg = fixedIssues.isEmpty() ? 
+        StringBuilder msg = new StringBuilder(fixedIssues.isEmpty() ? 
                 "There is an IgnoreIssueResolved annotation placed but no declared issues are resolved, this indicates that someone put the IgnoreIssueResolved has been placed prematurely!":
-                "There is an IgnoreIssueResolved annotation placed over following resolved issues:";
+                "There is an IgnoreIssueResolved annotation placed over following resolved issues:");
         for (FixForIssue fixedIssue : fixedIssues) {
-            msg = msg + "\n" + constructIssueMessage(fixedIssue);
+            msg.append("\n").append(constructIssueMessage(fixedIssue));
         }
-        msg = msg + "\n" + "indicated used version is: " + ignore.versionUsed();
-        msg = msg + "\n" + "indicated fixed version is: " + ignore.versionResolved();
-        msg = msg + "\n" + "reason for not removing the hack is: " + ignore.reasoningWhyHackCannotBeRemoved();
-        msg = msg + "\n";
-        return msg;
+        msg.append("\n").append("indicated used version is: ").append(ignore.versionUsed());
+        msg.append("\n").append("indicated fixed version is: ").append(ignore.versionResolved());
+        msg.append("\n").append("reason for not removing the hack is: ").append(ignore.reasoningWhyHackCannotBeRemoved());
+        msg.append("\n");
+        return msg.toString();
     }
 
-    private void checkIfFixForIssueIsPresent(FixForIssue[] fixForIssues, Element e) {
-        if(fixForIssues.length == 0){
+    private void checkIfFixForIssueIsPresent(AnnotatedHack hack) {
+        if(hack.getIssues().length == 0){
             processingEnv.getMessager().printMessage( ERROR,
                     "IgnoreIssueResolved can be used only with FixForIssue or nonempty FixForIssues present !",
-                    e , getOptionalIgnoreIssueResolvedAnnotationMirror(e).get() );
+                    hack.getElement(), hack.getIgnoreMirror() );
         }
     }
 
-    private void checkReasonForIgnore(IgnoreIssueResolved ignore, Element e) {
+    private void checkReasonForIgnore(IgnoreIssueResolved ignore, AnnotatedHack hack) {
         if(ignore.reasoningWhyHackCannotBeRemoved() == null || ignore.reasoningWhyHackCannotBeRemoved().trim().length() < 128){
             processingEnv.getMessager().printMessage( ERROR,
                     "reasoning for why hack cannot be removed has to be present and at least reasonable 128 characters long!",
-                    e , getOptionalIgnoreIssueResolvedAnnotationMirror(e).get() );
+                    hack.getElement(), hack.getIgnoreMirror() );
         }
     }
 
-    private AnnotationMirror getCorrectAnnotationMirror(Element e) {
-        return getOptionalFixForIssuesAnnotationMirror(e)
-                .orElseGet(() -> getOptionalFixForIssueAnnotationMirror(e)
-                        .orElseGet(() -> getOptionalIgnoreIssueResolvedAnnotationMirror(e).get())
-                );
-    }
-    
-    private Optional<AnnotationMirror> getOptionalIgnoreIssueResolvedAnnotationMirror(Element e) {
-        return e.getAnnotationMirrors().stream().filter(
-                (AnnotationMirror aT) -> 
-                        aT.getAnnotationType().asElement().getSimpleName()
-                                .contentEquals(IgnoreIssueResolved.class.getSimpleName())
-        ).map(AnnotationMirror.class::cast).findAny();
-    }
-    
-    private Optional<AnnotationMirror> getOptionalFixForIssuesAnnotationMirror(Element e) {
-        return e.getAnnotationMirrors().stream().filter(
-                (AnnotationMirror aT) -> 
-                        aT.getAnnotationType().asElement().getSimpleName()
-                                .contentEquals(FixForIssues.class.getSimpleName())
-        ).map(AnnotationMirror.class::cast).findAny();
-    }
-
-    private Optional<AnnotationMirror> getOptionalFixForIssueAnnotationMirror(Element e) {
-        return e.getAnnotationMirrors().stream().filter(
-                (AnnotationMirror aT) ->
-                        aT.getAnnotationType().asElement().getSimpleName()
-                                .contentEquals(FixForIssue.class.getSimpleName())
-        ).map(AnnotationMirror.class::cast).findAny();
-    }
-    
     private String constructIssueMessage(FixForIssue fixInformation)
     {
-        return "Issue " + fixInformation.url() + "browse/" + fixInformation.issue()
+        return "Issue " + jiraIssueChecker.constructBrowseUrl(fixInformation)
                + " has been already resolved - you should now remove your hack.";
     }
     
     private String constructMultipleIssuesMessage(FixForIssues fixInformation) {
-        String toReturn = fixInformation.needsAllIssuesResolved() ? "All issues :" : "At least one of issues: ";
+        StringBuilder toReturn = new StringBuilder(fixInformation.needsAllIssuesResolved() ? "All issues :" : "At least one of issues: ");
         for (FixForIssue fixForIssue : fixInformation.value()) {
-            toReturn = toReturn + "\n" +fixForIssue.url() + "browse/" + fixForIssue.issue();
+            toReturn.append("\n").append(jiraIssueChecker.constructBrowseUrl(fixForIssue));
         }
-        toReturn = toReturn + "\n has been already resolved - you should now remove your hack.";
-        return toReturn;
+        toReturn.append("\n has been already resolved - you should now remove your hack.");
+        return toReturn.toString();
     }
     
     private boolean checkIfMultipleIssuesAreResolved(FixForIssues fixInformation) throws URISyntaxException
@@ -207,33 +400,33 @@ public class FixForIssueProcessor extends AbstractProcessor
 
     private boolean checkIssueIsResolved(FixForIssue fixInformation)
     {
-        switch (fixInformation.trackerType()){
-            case JIRA :
-                return JiraIssueChecker.checkIssueResolved(fixInformation);
-            default: 
-                return false;
+        Boolean reused = reusedVerdicts.get(IssueKey.of(fixInformation));
+        if (reused != null)
+        {
+            return reused;
         }
+        return jiraIssueChecker.checkIssueResolved(fixInformation);
     }
 
     private String constructVerboseMessage(FixForIssues fixForIssues) {
-        String toReturn = "";
+        MessageBuilder toReturn = new MessageBuilder(configuration.getVerboseMaxMessageLength());
         for (FixForIssue fixForIssue : fixForIssues.value()) {
-            toReturn += constructVerboseMessage(fixForIssue)+"\n";
+            if (toReturn.isFull()) {
+                break;
+            }
+            toReturn.append(constructVerboseMessage(fixForIssue)).append("\n");
         }
-        return toReturn;
+        return toReturn.toString();
     }
     
     private String constructVerboseMessage(FixForIssue fixForIssue) {
-        switch (fixForIssue.trackerType()){
-            case JIRA :
-                return JiraIssueChecker.constructVerboseMessageForIssue(fixForIssue);
-            default: 
-                return constructMessageForUnknownIssueTracker(fixForIssue) ;
-        }
+        return jiraIssueChecker.isSupported(fixForIssue)
+                ? jiraIssueChecker.constructVerboseMessageForIssue(fixForIssue)
+                : constructMessageForUnknownIssueTracker(fixForIssue);
     }
 
     private static String constructMessageForUnknownIssueTracker(FixForIssue fixForIssue) {
-        return "an unknown issue tracker has been requested: "+fixForIssue.trackerType()
+        return "an unknown issue tracker has been requested: "+IssueKey.getTrackerType(fixForIssue)
                 +" with url: "+fixForIssue.url()
                 +" and issue: "+fixForIssue.issue();
     }
@@ -0,0 +1,209 @@
+package de.psi.pjf.hackcracker.annotation;
+
+import de.psi.pjf.hackcracker.jira.IssueKey;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.Set;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+
+/**
+ * Verdicts of earlier compilations for the annotated elements of one top level
+ * type (or package), kept in the cache directory. An element whose signature
+ * and issues did not change since its verdict has been written can reuse the
+ * verdict while it is younger than the cache time to live, so incremental
+ * compilations do not look up its issues again. The index is not written through
+ * the filer: incremental builds delete the files generated for a type before it
+ * is compiled again, and a verdict only depends on the issues anyway.
+ */
+class VerdictIndex
+{
+    private static final String DIRECTORY = "verdicts";
+
+    private final Path file;
+    private final Map<String, Verdict> previous;
+    private final Map<String, Verdict> current = new LinkedHashMap<>();
+
+    private VerdictIndex(Path aFile, Map<String, Verdict> aPrevious)
+    {
+        file = aFile;
+        previous = aPrevious;
+    }
+
+    /**
+     * @param cacheDirectory directory of the issue status cache.
+     */
+    static VerdictIndex read(Path cacheDirectory, Element topLevelElement)
+    {
+        Path file = cacheDirectory.resolve(DIRECTORY).resolve(fileName(topLevelElement));
+        Map<String, Verdict> verdicts = new HashMap<>();
+        Properties properties = new Properties();
+        try (InputStream in = Files.newInputStream(file))
+        {
+            properties.load(in);
+        }
+        catch (IOException | IllegalArgumentException ex)
+        {
+            // no index yet, everything is checked
+            return new VerdictIndex(file, verdicts);
+        }
+        for (String signature : properties.stringPropertyNames())
+        {
+            try
+            {
+                verdicts.put(signature, Verdict.parse(properties.getProperty(signature)));
+            }
+            catch (IllegalArgumentException ex)
+            {
+                // a broken verdict is simply checked again
+            }
+        }
+        return new VerdictIndex(file, verdicts);
+    }
+
+    /**
+     * @param signature signature of the element.
+     * @param issues issues the element is annotated with now.
+     * @param timeToLive how long a verdict may be reused.
+     * @return the previous verdict for every issue if it can be reused, in which
+     * case it is kept in the index.
+     */
+    Optional<Map<IssueKey, Boolean>> reuse(String signature, Set<IssueKey> issues, Duration timeToLive)
+    {
+        Verdict verdict = previous.get(signature);
+        if (verdict == null
+                || !verdict.resolved.keySet().equals(issues)
+                || System.currentTimeMillis() - verdict.checkedAt >= timeToLive.toMillis())
+        {
+            return Optional.empty();
+        }
+        current.put(signature, verdict);
+        return Optional.of(verdict.resolved);
+    }
+
+    void record(String signature, long checkedAt, Map<IssueKey, Boolean> resolved)
+    {
+        current.put(signature, new Verdict(checkedAt, resolved));
+    }
+
+    /**
+     * Replaces the index atomically, compilations running at the same time may read it.
+     */
+    void write() throws IOException
+    {
+        Properties properties = new Properties();
+        current.forEach((signature, verdict) -> properties.setProperty(signature, verdict.toString()));
+        Files.createDirectories(file.getParent());
+        Path temporary = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+        try
+        {
+            try (OutputStream out = Files.newOutputStream(temporary))
+            {
+                properties.store(out, null);
+            }
+            try
+            {
+                Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            }
+            catch (AtomicMoveNotSupportedException ex)
+            {
+                Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        finally
+        {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    /**
+     * @return the top level type or package the element belongs to.
+     */
+    static Element getTopLevelElement(Element e)
+    {
+        Element toReturn = e;
+        while (toReturn.getKind() != ElementKind.PACKAGE
+                && toReturn.getEnclosingElement().getKind() != ElementKind.PACKAGE)
+        {
+            toReturn = toReturn.getEnclosingElement();
+        }
+        return toReturn;
+    }
+
+    static String signature(Element e)
+    {
+        if (e instanceof TypeElement)
+        {
+            return ((TypeElement) e).getQualifiedName().toString();
+        }
+        if (e instanceof PackageElement)
+        {
+            return ((PackageElement) e).getQualifiedName().toString();
+        }
+        return signature(e.getEnclosingElement()) + "#" + e;
+    }
+
+    private static String fileName(Element topLevelElement)
+    {
+        return signature(topLevelElement)
+                + (topLevelElement.getKind() == ElementKind.PACKAGE ? ".package-info" : "") + ".properties";
+    }
+
+    private static final class Verdict
+    {
+        private final long checkedAt;
+        private final Map<IssueKey, Boolean> resolved;
+
+        private Verdict(long aCheckedAt, Map<IssueKey, Boolean> aResolved)
+        {
+            checkedAt = aCheckedAt;
+            resolved = aResolved;
+        }
+
+        /**
+         * @param value time of the check followed by {@code <url> <issue>=<resolved>} for every issue.
+         */
+        private static Verdict parse(String value)
+        {
+            String[] parts = value.split(" ");
+            if (parts.length < 3 || parts.length % 2 != 1)
+            {
+                throw new IllegalArgumentException("malformed verdict: " + value);
+            }
+            Map<IssueKey, Boolean> resolved = new LinkedHashMap<>();
+            for (int i = 1; i < parts.length; i += 2)
+            {
+                int separator = parts[i + 1].lastIndexOf('=');
+                if (separator < 0)
+                {
+                    throw new IllegalArgumentException("malformed verdict: " + value);
+                }
+                resolved.put(new IssueKey(parts[i], parts[i + 1].substring(0, separator)),
+                        Boolean.valueOf(parts[i + 1].substring(separator + 1)));
+            }
+            return new Verdict(Long.parseLong(parts[0]), resolved);
+        }
+
+        @Override
+        public String toString()
+        {
+            StringBuilder toReturn = new StringBuilder().append(checkedAt);
+            resolved.forEach((key, isResolved) -> toReturn.append(' ').append(key.getUrl())
+                    .append(' ').append(key.getIssue()).append('=').append(isResolved));
+            return toReturn.toString();
+        }
+    }
+}
@@ -1,31 +1,60 @@
 package de.psi.pjf.hackcracker.annotation.configuration;
 
 import de.psi.pjf.hackcracker.jira.JiraIssueChecker;
-import java.io.File;
-import java.util.ArrayList;
-import java.util.List;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
-import javax.xml.bind.JAXBContext;
-import javax.xml.bind.JAXBException;
-import javax.xml.bind.annotation.XmlAccessType;
-import javax.xml.bind.annotation.XmlAccessorType;
-import javax.xml.bind.annotation.XmlAttribute;
-import javax.xml.bind.annotation.XmlElement;
-import javax.xml.bind.annotation.XmlRootElement;
-import javax.xml.bind.annotation.XmlTransient;
-
-@XmlRootElement(name="configuration")
-@XmlAccessorType(XmlAccessType.FIELD)
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * Issue trackers configuration read from {@code ~/.hackcracker/issue_trackers.xml} or the file
+ * given with system property {@code hackcracker.configuration}. Every attribute of the root element
+ * sets the field of the same name. The file is read with StAX only when the configuration is needed
+ * for the first time and read again only when it has been modified since. Numbers that cannot be
+ * parsed or are negative are reported as a warning and replaced by their default.
+ */
 public class IssueTrackerConfiguration
 {
-    @XmlTransient
-    public static final IssueTrackerConfiguration CONFIGURATION = retrieveConfiguration();
+    private static final Logger LOGGER = Logger.getLogger(JiraIssueChecker.class.getName());
+    
+    private static Loaded loaded;
+    
+    private static final IssueTrackerConfiguration DEFAULTS = new IssueTrackerConfiguration();
+    
+    /**
+     * Attributes with invalid values that have been reported already.
+     */
+    private final Set<String> invalidAttributes = ConcurrentHashMap.newKeySet();
     
-    @XmlElement(name="jira")
-    private List<JiraInstance> jiraInstances = new ArrayList<>();
+    /**
+     * Issue tracker instances by the name of their element, {@code jira} or {@code github}
+     * for example, and by url.
+     */
+    private final Map<String, Map<String, JiraInstance>> trackerInstances = new LinkedHashMap<>();
     
-    @XmlAccessorType(XmlAccessType.FIELD)
+    /**
+     * Url and credentials of an issue tracker instance, whatever its type is. The password
+     * of a {@code github} instance is its access token, which GitHub requires for every
+     * repository, public ones too.
+     */
     public static class JiraInstance{
         private String url;
         private String password;
@@ -45,9 +74,19 @@ public class IssueTrackerConfiguration
         {
             return user;
         }
+
+        private void setValue(String name, String value)
+        {
+            switch (name)
+            {
+                case "url": url = value; break;
+                case "password": password = value; break;
+                case "user": user = value; break;
+                default:
+            }
+        }
     }
     
-    @XmlAttribute
     private String switchOff = "false";
     
     /**
@@ -71,31 +110,264 @@ public class IssueTrackerConfiguration
 </project>
      * }
      */
-    @XmlAttribute
     private String verbose = "false";
     
+    /**
+     * Number of the latest comments of an issue shown in the verbose output, older ones are left out.
+     */
+    private String verboseMaxComments = "10";
+    
+    /**
+     * Maximal number of characters of a verbose note, longer ones are truncated. 0 switches the limit off.
+     */
+    private String verboseMaxMessageLength = "8000";
+    
+    /**
+     * Resolutions of issues that allow to remove the hacks for them, separated by commas. Issue trackers 
+     * are asked only for issues with one of these resolutions where they can filter them, issues they
+     * do not return count as unresolved.
+     */
+    private String resolvedResolutions = "Done,Fixed";
+    
+    /**
+     * Number of minutes for which the resolution of an issue is taken from the issue status cache
+     * by all following compilations instead of asking the issue tracker again. 0 switches the cache off.
+     */
+    private String cacheTtlMinutes = "60";
+    
+    /**
+     * Directory of the issue status cache and of the verdicts of annotated elements, shared by all
+     * compilations on the machine.
+     */
+    private String cacheDirectory = System.getProperty("user.home")+"/.hackcracker/cache";
+    
+    /**
+     * Maximal number of requests sent to one issue tracker host at the same time, which is also 
+     * the number of keep-alive connections to the host that are used.
+     */
+    private String maxConcurrentRequestsPerHost = "4";
+    
+    /**
+     * Maximal number of requests started per second to one issue tracker host. When an issue tracker 
+     * answers that it gets too many requests (HTTP 429), the rate is halved for all compilations in the JVM 
+     * and raised again step by step with every answered request. 0 switches the limit off.
+     */
+    private String maxRequestsPerSecondPerHost = "10";
+    
+    /**
+     * Number of times a request rejected as one too many is sent again, after the time the issue tracker
+     * asks for or an exponential backoff, as long as the time budget allows.
+     */
+    private String maxRetries = "3";
+    
+    /**
+     * Maximal number of issue tracker clients kept open by all compilations running in the JVM.
+     */
+    private String maxClients = "16";
+    
+    /**
+     * Number of seconds after which a client that is not used by any compilation is closed.
+     * All clients are closed anyway as soon as no compilation is running anymore.
+     */
+    private String idleClientTimeoutSeconds = "60";
+    
+    /**
+     * Number of seconds after which a single request to an issue tracker is given up, at least 1.
+     */
+    private String requestTimeoutSeconds = "10";
+    
+    /**
+     * Number of seconds a compilation may spend waiting for issue trackers in total. Once used up,
+     * remaining issues are checked against their last cached status, if there is any. At least 1.
+     */
+    private String timeBudgetSeconds = "60";
+    
+    /**
+     * Number of consecutive failed requests after which an issue tracker is not called anymore
+     * for {@code circuitBreakerCooldownMinutes}, by this and all following compilations. 0 switches it off.
+     */
+    private String circuitBreakerThreshold = "3";
+    
+    private String circuitBreakerCooldownMinutes = "5";
+    
+    /**
+     * Snapshot file to take all issue statuses from instead of calling issue trackers, for
+     * builds without access to them. Can be overriden with system property: {@code hackcracker.offlineSnapshot}.
+     * The snapshot is written by {@code de.psi.pjf.hackcracker.jira.SnapshotGenerator}.
+     */
+    private String offlineSnapshot = "";
+    
+    /**
+     * Issue status index (a snapshot file with the extension {@code .idx}) consulted before the cache 
+     * and the issue trackers, its entries are used for {@code cacheTtlMinutes} like cache entries. 
+     * It is mapped into memory instead of being read, so it may hold any number of issues. Written by
+     * the {@code prefetch} goal of {@code hack-cracker-maven-plugin} or by 
+     * {@code de.psi.pjf.hackcracker.jira.SnapshotGenerator}. Can be overriden with system property: 
+     * {@code hackcracker.statusIndex}.
+     */
+    private String statusIndex = "";
+    
+    /**
+     * Json file with the metrics of the compilation, for example {@code target/hackcracker-metrics.json},
+     * relative paths resolved against the working directory of the compiler. It is written directly,
+     * not through the filer, as it belongs to the whole build rather than to any type. Empty switches it
+     * off, a one-line summary is printed as a note in any case.
+     */
+    private String metricsFile = "";
+    
+    /**
+     * File in which a running {@code de.psi.pjf.hackcracker.jira.IssueDaemon} publishes how to reach it.
+     * Compilations send their lookups to the daemon if it is running and call issue trackers themselves 
+     * otherwise. Empty never asks a daemon.
+     */
+    private String daemonFile = System.getProperty("user.home")+"/.hackcracker/daemon";
+    
+    /**
+     * Loopback port the daemon listens on, 0 picks a free one.
+     */
+    private String daemonPort = "0";
+    
     public JiraInstance getForName(String name){
-        return jiraInstances.stream().filter(i -> name.equals(i.getUrl())).findAny().orElse(null);
+        return getInstance("jira", name);
+    }
+    
+    /**
+     * @param type name of the element the instance is configured with.
+     * @param url url of the instance.
+     * @return the instance, null if there is no configuration for it.
+     */
+    public JiraInstance getInstance(String type, String url){
+        return trackerInstances.getOrDefault(type, Collections.emptyMap()).get(url);
     }
     
-    private static IssueTrackerConfiguration retrieveConfiguration(){
-        IssueTrackerConfiguration configuration;
+    /**
+     * @return the configuration of the current configuration file, parsed again
+     * only if the file has been modified since it has been parsed last time.
+     */
+    public static synchronized IssueTrackerConfiguration getConfiguration(){
+        String cfg = System.getProperty("hackcracker.configuration");
+        cfg = cfg == null ? System.getProperty("user.home")+"/.hackcracker/issue_trackers.xml" : cfg;
+        Path file = Paths.get(cfg);
+        long lastModified;
         try
         {
-            JAXBContext jc = JAXBContext.newInstance(IssueTrackerConfiguration.class);
-            String cfg = System.getProperty("hackcracker.configuration");
-            cfg = cfg == null ? System.getProperty("user.home")+"/.hackcracker/issue_trackers.xml" : cfg;
-            File configurationFile = new File(cfg);
-            configuration = (IssueTrackerConfiguration) jc.createUnmarshaller().unmarshal(configurationFile);
+            lastModified = Files.getLastModifiedTime(file).toMillis();
+        }
+        catch (IOException ex)
+        {
+            lastModified = -1;
         }
-        catch (JAXBException ex)
+        if (loaded == null || !loaded.file.equals(file) || loaded.lastModified != lastModified)
         {
-            Logger.getLogger(JiraIssueChecker.class.getName())
-                    .log(Level.WARNING,"there was an exception when reading user issue tracker configuration",ex);
-            configuration = new IssueTrackerConfiguration();
+            loaded = new Loaded(file, lastModified, retrieveConfiguration(file));
+        }
+        return loaded.configuration;
+    }
+    
+    private static IssueTrackerConfiguration retrieveConfiguration(Path file){
+        try
+        {
+            return parse(file);
+        }
+        catch (NoSuchFileException ex)
+        {
+            LOGGER.log(Level.WARNING, "there is no issue tracker configuration {0}, defaults are used", file);
+        }
+        catch (IOException | XMLStreamException | RuntimeException ex)
+        {
+            LOGGER.log(Level.WARNING, "there was an exception when reading user issue tracker configuration " + file, ex);
+        }
+        return new IssueTrackerConfiguration();
+    }
+    
+    private static IssueTrackerConfiguration parse(Path file) throws IOException, XMLStreamException{
+        IssueTrackerConfiguration configuration = new IssueTrackerConfiguration();
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        try (InputStream in = Files.newInputStream(file))
+        {
+            XMLStreamReader reader = factory.createXMLStreamReader(in);
+            try
+            {
+                int depth = 0;
+                JiraInstance instance = null;
+                String type = null;
+                StringBuilder text = null;
+                while (reader.hasNext())
+                {
+                    switch (reader.next())
+                    {
+                        case XMLStreamConstants.START_ELEMENT:
+                            depth++;
+                            if (depth == 1)
+                            {
+                                if (!reader.getLocalName().equals("configuration"))
+                                {
+                                    throw new XMLStreamException("unexpected root element " + reader.getLocalName(), reader.getLocation());
+                                }
+                                for (int i = 0; i < reader.getAttributeCount(); i++)
+                                {
+                                    configuration.setAttribute(reader.getAttributeLocalName(i), reader.getAttributeValue(i));
+                                }
+                            }
+                            else if (depth == 2)
+                            {
+                                type = reader.getLocalName();
+                                instance = new JiraInstance();
+                            }
+                            else if (depth == 3 && instance != null)
+                            {
+                                text = new StringBuilder();
+                            }
+                            break;
+                        case XMLStreamConstants.CHARACTERS:
+                        case XMLStreamConstants.CDATA:
+                            if (text != null)
+                            {
+                                text.append(reader.getText());
+                            }
+                            break;
+                        case XMLStreamConstants.END_ELEMENT:
+                            if (depth == 3 && instance != null && text != null)
+                            {
+                                instance.setValue(reader.getLocalName(), text.toString().trim());
+                                text = null;
+                            }
+                            else if (depth == 2 && instance != null)
+                            {
+                                configuration.trackerInstances.computeIfAbsent(type, t -> new LinkedHashMap<>())
+                                        .putIfAbsent(instance.getUrl(), instance);
+                                instance = null;
+                            }
+                            depth--;
+                            break;
+                        default:
+                    }
+                }
+            }
+            finally
+            {
+                reader.close();
+            }
         }
         return configuration;
     }
+    
+    private void setAttribute(String name, String value){
+        try
+        {
+            Field field = IssueTrackerConfiguration.class.getDeclaredField(name);
+            if (field.getType() == String.class && !Modifier.isStatic(field.getModifiers()))
+            {
+                field.set(this, value);
+            }
+        }
+        catch (NoSuchFieldException | IllegalAccessException ex)
+        {
+            // unknown attributes are ignored
+        }
+    }
 
     public boolean isSwitchOff() {
         return Boolean.parseBoolean(switchOff);
@@ -104,4 +376,138 @@ public class IssueTrackerConfiguration
     public boolean isVerbose() {
         return Boolean.parseBoolean(verbose);
     }
+
+    public int getVerboseMaxComments() {
+        return (int) parseNumber("verboseMaxComments", verboseMaxComments, DEFAULTS.verboseMaxComments, 0, Integer.MAX_VALUE);
+    }
+
+    public int getVerboseMaxMessageLength() {
+        return (int) parseNumber("verboseMaxMessageLength", verboseMaxMessageLength, DEFAULTS.verboseMaxMessageLength, 0, Integer.MAX_VALUE);
+    }
+
+    /**
+     * @return names of the resolutions of resolved issues.
+     */
+    public Set<String> getResolvedResolutions() {
+        Set<String> toReturn = new LinkedHashSet<>();
+        for (String resolution : resolvedResolutions.split(",")) {
+            if (!resolution.trim().isEmpty()) {
+                toReturn.add(resolution.trim());
+            }
+        }
+        return toReturn;
+    }
+
+    public Duration getCacheTtl() {
+        return Duration.ofMinutes(parseNumber("cacheTtlMinutes", cacheTtlMinutes, DEFAULTS.cacheTtlMinutes, 0, Integer.MAX_VALUE / 60));
+    }
+
+    public Path getCacheDirectory() {
+        return Paths.get(cacheDirectory);
+    }
+
+    public int getMaxConcurrentRequestsPerHost() {
+        return (int) parseNumber("maxConcurrentRequestsPerHost", maxConcurrentRequestsPerHost, DEFAULTS.maxConcurrentRequestsPerHost, 0, Integer.MAX_VALUE);
+    }
+
+    public double getMaxRequestsPerSecondPerHost() {
+        String value = maxRequestsPerSecondPerHost.trim();
+        try {
+            double toReturn = Double.parseDouble(value);
+            if (toReturn >= 0 && !Double.isInfinite(toReturn)) {
+                return toReturn;
+            }
+        } catch (NumberFormatException ex) {
+            // reported below
+        }
+        reportInvalid("maxRequestsPerSecondPerHost", value, DEFAULTS.maxRequestsPerSecondPerHost);
+        return Double.parseDouble(DEFAULTS.maxRequestsPerSecondPerHost);
+    }
+
+    public int getMaxRetries() {
+        return (int) parseNumber("maxRetries", maxRetries, DEFAULTS.maxRetries, 0, Integer.MAX_VALUE);
+    }
+
+    public int getMaxClients() {
+        return (int) parseNumber("maxClients", maxClients, DEFAULTS.maxClients, 0, Integer.MAX_VALUE);
+    }
+
+    public Duration getIdleClientTimeout() {
+        return Duration.ofSeconds(parseNumber("idleClientTimeoutSeconds", idleClientTimeoutSeconds, DEFAULTS.idleClientTimeoutSeconds, 0, Integer.MAX_VALUE));
+    }
+
+    public Duration getRequestTimeout() {
+        return Duration.ofSeconds(parseNumber("requestTimeoutSeconds", requestTimeoutSeconds, DEFAULTS.requestTimeoutSeconds, 1, Integer.MAX_VALUE));
+    }
+
+    public Duration getTimeBudget() {
+        return Duration.ofSeconds(parseNumber("timeBudgetSeconds", timeBudgetSeconds, DEFAULTS.timeBudgetSeconds, 1, Integer.MAX_VALUE));
+    }
+
+    public int getCircuitBreakerThreshold() {
+        return (int) parseNumber("circuitBreakerThreshold", circuitBreakerThreshold, DEFAULTS.circuitBreakerThreshold, 0, Integer.MAX_VALUE);
+    }
+
+    public Duration getCircuitBreakerCooldown() {
+        return Duration.ofMinutes(parseNumber("circuitBreakerCooldownMinutes", circuitBreakerCooldownMinutes, DEFAULTS.circuitBreakerCooldownMinutes, 0, Integer.MAX_VALUE / 60));
+    }
+
+    public Optional<Path> getMetricsFile() {
+        return metricsFile.trim().isEmpty() ? Optional.empty() : Optional.of(Paths.get(metricsFile.trim()));
+    }
+
+    public Optional<Path> getOfflineSnapshot() {
+        String snapshot = System.getProperty("hackcracker.offlineSnapshot", offlineSnapshot);
+        return snapshot == null || snapshot.trim().isEmpty() ? Optional.empty() : Optional.of(Paths.get(snapshot.trim()));
+    }
+
+    public Optional<Path> getStatusIndex() {
+        String index = System.getProperty("hackcracker.statusIndex", statusIndex);
+        return index == null || index.trim().isEmpty() ? Optional.empty() : Optional.of(Paths.get(index.trim()));
+    }
+
+    public Optional<Path> getDaemonFile() {
+        return daemonFile.trim().isEmpty() ? Optional.empty() : Optional.of(Paths.get(daemonFile.trim()));
+    }
+
+    public int getDaemonPort() {
+        return (int) parseNumber("daemonPort", daemonPort, DEFAULTS.daemonPort, 0, 65535);
+    }
+
+    /**
+     * @return the value as a number, the default if it is not a number within 0 and the maximum.
+     */
+    private long parseNumber(String attribute, String value, String defaultValue, long min, long max) {
+        try {
+            long toReturn = Long.parseLong(value.trim());
+            if (toReturn >= min && toReturn <= max) {
+                return toReturn;
+            }
+        } catch (NumberFormatException ex) {
+            // reported below
+        }
+        reportInvalid(attribute, value, defaultValue);
+        return Long.parseLong(defaultValue);
+    }
+
+    private void reportInvalid(String attribute, String value, String defaultValue) {
+        if (invalidAttributes.add(attribute)) {
+            LOGGER.log(Level.WARNING, "invalid value \"{0}\" of {1} in the issue tracker configuration, {2} is used instead",
+                    new Object[]{value.trim(), attribute, defaultValue});
+        }
+    }
+
+    private static class Loaded
+    {
+        private final Path file;
+        private final long lastModified;
+        private final IssueTrackerConfiguration configuration;
+
+        private Loaded(Path aFile, long aLastModified, IssueTrackerConfiguration aConfiguration)
+        {
+            file = aFile;
+            lastModified = aLastModified;
+            configuration = aConfiguration;
+        }
+    }
 }
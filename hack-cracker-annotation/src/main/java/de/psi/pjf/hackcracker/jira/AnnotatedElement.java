@@ -0,0 +1,70 @@
+package de.psi.pjf.hackcracker.jira;
+
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * An element annotated with {@code @FixForIssue} or {@code @FixForIssues} as
+ * found by the {@link SourceScanner}, described by the source text of its
+ * declaration.
+ */
+public final class AnnotatedElement
+{
+    private final Path file;
+    private final int line;
+    private final String declaration;
+    private final List<IssueKey> issues;
+    private final boolean needsAllIssuesResolved;
+    private final boolean ignoreIssueResolved;
+
+    public AnnotatedElement(Path aFile, int aLine, String aDeclaration, List<IssueKey> aIssues,
+                            boolean aNeedsAllIssuesResolved, boolean aIgnoreIssueResolved)
+    {
+        file = aFile;
+        line = aLine;
+        declaration = aDeclaration;
+        issues = Collections.unmodifiableList(aIssues);
+        needsAllIssuesResolved = aNeedsAllIssuesResolved;
+        ignoreIssueResolved = aIgnoreIssueResolved;
+    }
+
+    public Path getFile()
+    {
+        return file;
+    }
+
+    /**
+     * @return line of the declaration, starting with 1.
+     */
+    public int getLine()
+    {
+        return line;
+    }
+
+    public String getDeclaration()
+    {
+        return declaration;
+    }
+
+    public List<IssueKey> getIssues()
+    {
+        return issues;
+    }
+
+    public boolean isNeedsAllIssuesResolved()
+    {
+        return needsAllIssuesResolved;
+    }
+
+    public boolean isIgnoreIssueResolved()
+    {
+        return ignoreIssueResolved;
+    }
+
+    @Override
+    public String toString()
+    {
+        return file + ":" + line + " " + declaration;
+    }
+}
@@ -0,0 +1,179 @@
+package de.psi.pjf.hackcracker.jira;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Objects;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Stops calling an issue tracker instance that cannot be reached. After the
+ * configured number of consecutive failed requests the breaker opens and every
+ * further request fails fast with {@link OpenException} until the cooldown is
+ * over. Then requests are let through again, the first failing one opens the
+ * breaker again, the first successful one closes it. The open state is written
+ * next to the issue status cache and read again whenever it has been changed, so
+ * other compilations on the machine, running or following, do not wait for the
+ * same unreachable issue tracker again.
+ */
+class CircuitBreaker
+{
+    private static final Logger LOGGER = Logger.getLogger(CircuitBreaker.class.getName());
+
+    private final String url;
+    private final Path stateFile;
+    private final int threshold;
+    private final Duration cooldown;
+    private int consecutiveFailures;
+    private long openUntil;
+    private FileTime stateModified;
+
+    CircuitBreaker(String aUrl, Path aDirectory, int aThreshold, Duration aCooldown)
+    {
+        url = aUrl;
+        stateFile = aDirectory.resolve(aUrl.replaceAll("[^A-Za-z0-9.-]", "_") + ".open");
+        threshold = aThreshold;
+        cooldown = aCooldown;
+        readState();
+    }
+
+    /**
+     * @return true if the breaker has been created with these settings.
+     */
+    boolean hasSettings(Path aDirectory, int aThreshold, Duration aCooldown)
+    {
+        return stateFile.getParent().equals(aDirectory) && threshold == aThreshold && cooldown.equals(aCooldown);
+    }
+
+    /**
+     * @throws OpenException if the issue tracker must not be called now.
+     */
+    synchronized void checkClosed()
+    {
+        readState();
+        if (System.currentTimeMillis() < openUntil)
+        {
+            throw new OpenException(url, openUntil);
+        }
+    }
+
+    synchronized void recordSuccess()
+    {
+        consecutiveFailures = 0;
+        if (openUntil != 0)
+        {
+            openUntil = 0;
+            deleteState();
+        }
+    }
+
+    synchronized void recordFailure()
+    {
+        if (threshold <= 0 || ++consecutiveFailures < threshold)
+        {
+            return;
+        }
+        // after the cooldown a single failure is enough to open again
+        consecutiveFailures = threshold - 1;
+        openUntil = System.currentTimeMillis() + cooldown.toMillis();
+        writeState();
+    }
+
+    /**
+     * Takes over the state written by breakers of other processes, if it has been changed since
+     * it was read last.
+     */
+    private void readState()
+    {
+        FileTime modified = getStateModified();
+        if (Objects.equals(modified, stateModified))
+        {
+            return;
+        }
+        stateModified = modified;
+        openUntil = readOpenUntil();
+        // after the cooldown a single failure is enough to open again
+        consecutiveFailures = openUntil != 0 ? Math.max(consecutiveFailures, threshold - 1) : 0;
+    }
+
+    private FileTime getStateModified()
+    {
+        try
+        {
+            return Files.getLastModifiedTime(stateFile);
+        }
+        catch (IOException ex)
+        {
+            return null;
+        }
+    }
+
+    private long readOpenUntil()
+    {
+        if (!Files.isRegularFile(stateFile))
+        {
+            return 0;
+        }
+        try
+        {
+            long toReturn = Long.parseLong(new String(Files.readAllBytes(stateFile), StandardCharsets.UTF_8).trim());
+            return toReturn > System.currentTimeMillis() ? toReturn : 0;
+        }
+        catch (IOException | NumberFormatException ex)
+        {
+            return 0;
+        }
+    }
+
+    private void writeState()
+    {
+        try
+        {
+            Files.createDirectories(stateFile.getParent());
+            Path temporary = Files.createTempFile(stateFile.getParent(), stateFile.getFileName().toString(), ".tmp");
+            Files.write(temporary, Long.toString(openUntil).getBytes(StandardCharsets.UTF_8));
+            try
+            {
+                Files.move(temporary, stateFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            }
+            catch (AtomicMoveNotSupportedException ex)
+            {
+                Files.move(temporary, stateFile, StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        catch (IOException ex)
+        {
+            LOGGER.log(Level.WARNING, "there was an exception when writing the circuit breaker state " + stateFile, ex);
+        }
+    }
+
+    private void deleteState()
+    {
+        try
+        {
+            Files.deleteIfExists(stateFile);
+        }
+        catch (IOException ex)
+        {
+            LOGGER.log(Level.WARNING, "there was an exception when deleting the circuit breaker state " + stateFile, ex);
+        }
+    }
+
+    static class OpenException extends RuntimeException
+    {
+        private static final long serialVersionUID = 1L;
+
+        OpenException(String url, long openUntil)
+        {
+            super("issue tracker " + url + " has not been reachable, it will not be called again before "
+                    + Instant.ofEpochMilli(openUntil));
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package de.psi.pjf.hackcracker.jira;
+
+import de.psi.pjf.hackcracker.tracker.IssueStatus;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Sends issue lookups to the {@link IssueDaemon} running on this machine.
+ */
+final class DaemonClient
+{
+    private static final Logger LOGGER = Logger.getLogger(DaemonClient.class.getName());
+    private static final int CONNECT_TIMEOUT_MILLIS = 1_000;
+
+    /**
+     * Time the answer may take beyond the timeout given to the daemon, for the
+     * way back.
+     */
+    private static final int ANSWER_MARGIN_MILLIS = 500;
+
+    private DaemonClient()
+    {
+    }
+
+    /**
+     * @param daemonFile file the daemon publishes its port and secret in.
+     * @param keys issues to look up.
+     * @param timeout time the daemon has for the answer, issues it has not retrieved by then
+     * are answered as not retrieved.
+     * @return answers of the daemon - the status of issues known to their issue tracker, empty
+     * for issues it does not know. Issues the daemon could not retrieve are missing, all of them
+     * if no daemon is running.
+     */
+    static Map<IssueKey, Optional<IssueStatus>> lookup(Path daemonFile, Collection<IssueKey> keys, Duration timeout)
+    {
+        if (!Files.isRegularFile(daemonFile) || timeout.toMillis() <= 0)
+        {
+            return Collections.emptyMap();
+        }
+        Map<IssueKey, Optional<IssueStatus>> toReturn = new HashMap<>();
+        try (Socket socket = new Socket())
+        {
+            Properties published = new Properties();
+            try (InputStream in = Files.newInputStream(daemonFile))
+            {
+                published.load(in);
+            }
+            socket.connect(new InetSocketAddress(InetAddress.getLoopbackAddress(),
+                    Integer.parseInt(published.getProperty(IssueDaemon.PORT, "").trim())),
+                    (int) Math.min(CONNECT_TIMEOUT_MILLIS, timeout.toMillis()));
+            socket.setSoTimeout((int) Math.min(Integer.MAX_VALUE, timeout.toMillis() + ANSWER_MARGIN_MILLIS));
+            List<IssueKey> requested = new ArrayList<>(keys);
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            out.writeUTF(published.getProperty(IssueDaemon.SECRET, ""));
+            out.writeLong(timeout.toMillis());
+            out.writeInt(requested.size());
+            for (IssueKey key : requested)
+            {
+                out.writeUTF(key.getUrl());
+                out.writeUTF(key.getIssue());
+                out.writeUTF(key.getTrackerType());
+            }
+            out.flush();
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            for (IssueKey key : requested)
+            {
+                switch (in.readByte())
+                {
+                    case IssueDaemon.FOUND: toReturn.put(key, Optional.of(IssueStatusCache.parse(in.readUTF()))); break;
+                    case IssueDaemon.ABSENT: toReturn.put(key, Optional.empty()); break;
+                    default:
+                }
+            }
+        }
+        catch (IOException | RuntimeException ex)
+        {
+            // no daemon running or it does not answer in time, issues are retrieved directly
+            LOGGER.log(Level.FINE, "the issue daemon published in " + daemonFile + " has not answered", ex);
+        }
+        return toReturn;
+    }
+}
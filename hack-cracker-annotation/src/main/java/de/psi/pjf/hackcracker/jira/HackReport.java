@@ -0,0 +1,218 @@
+package de.psi.pjf.hackcracker.jira;
+
+import de.psi.pjf.hackcracker.annotation.configuration.IssueTrackerConfiguration;
+import de.psi.pjf.hackcracker.tracker.IssueStatus;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Command line entry point telling which hacks can be removed now, without
+ * compiling anything. It scans the given sources with the {@link SourceScanner},
+ * looks up all referenced issues with one batched {@link JiraIssueChecker} pass
+ * and writes a report with one entry per annotated element and issue - as csv
+ * if the report file ends with {@code .csv}, as json otherwise. The same
+ * configuration as for the annotation processor applies, including the cache
+ * and the offline mode. Usage:
+ * {@code java -cp <hack-cracker-annotation with dependencies> de.psi.pjf.hackcracker.jira.HackReport <report file> <source directory>...}
+ */
+public class HackReport
+{
+    private static final String RESOLVED = "resolved";
+    private static final String UNRESOLVED = "unresolved";
+    private static final String UNKNOWN = "unknown";
+
+    public static void main(String[] args)
+    {
+        if (args.length < 2)
+        {
+            System.err.println("usage: HackReport <report file> <source directory>...");
+            System.exit(2);
+        }
+        int exitCode;
+        try
+        {
+            generate(Paths.get(args[0]),
+                    Arrays.stream(args, 1, args.length).map(Paths::get).collect(Collectors.toList()));
+            exitCode = 0;
+        }
+        catch (IOException ex)
+        {
+            ex.printStackTrace();
+            exitCode = 2;
+        }
+        // connections of the issue tracker clients are not daemon threads
+        System.exit(exitCode);
+    }
+
+    static void generate(Path reportFile, List<Path> sources) throws IOException
+    {
+        List<AnnotatedElement> elements = SourceScanner.scanElements(sources);
+        Set<IssueKey> keys = new LinkedHashSet<>();
+        elements.forEach(e -> keys.addAll(e.getIssues()));
+        Map<IssueKey, Optional<IssueStatus>> statuses = new LinkedHashMap<>();
+        Optional<String> fallbackMessage;
+        IssueTrackerConfiguration configuration = IssueTrackerConfiguration.getConfiguration();
+        Set<String> resolved = configuration.getResolvedResolutions();
+        try (JiraIssueChecker checker = new JiraIssueChecker(configuration))
+        {
+            checker.lookupKeys(keys);
+            for (IssueKey key : keys)
+            {
+                Optional<IssueStatus> status;
+                try
+                {
+                    status = checker.getStatus(key);
+                }
+                catch (RuntimeException ex)
+                {
+                    status = Optional.empty();
+                }
+                statuses.put(key, status);
+            }
+            fallbackMessage = checker.constructFallbackMessage();
+        }
+        try (Writer out = Files.newBufferedWriter(reportFile, StandardCharsets.UTF_8))
+        {
+            if (reportFile.getFileName().toString().endsWith(".csv"))
+            {
+                writeCsv(out, elements, statuses, resolved);
+            }
+            else
+            {
+                writeJson(out, elements, statuses, resolved);
+            }
+        }
+        long removable = elements.stream().filter(e -> isRemovable(e, statuses, resolved)).count();
+        long unknown = statuses.values().stream().filter(s -> !s.isPresent()).count();
+        System.out.println(elements.size() + " annotated elements found in " + sources + ", "
+                + removable + " hacks can be removed now, status of " + unknown + " of "
+                + keys.size() + " issues is unknown, report written to " + reportFile);
+        fallbackMessage.ifPresent(System.err::println);
+    }
+
+    private static void writeCsv(Writer out, List<AnnotatedElement> elements,
+                                 Map<IssueKey, Optional<IssueStatus>> statuses, Set<String> resolved) throws IOException
+    {
+        out.write("file,line,element,url,issue,status,resolution,removable,ignored\n");
+        for (AnnotatedElement element : elements)
+        {
+            boolean removable = isRemovable(element, statuses, resolved);
+            for (IssueKey key : element.getIssues())
+            {
+                Optional<IssueStatus> status = statuses.get(key);
+                out.write(String.join(",",
+                        csv(element.getFile().toString()),
+                        Integer.toString(element.getLine()),
+                        csv(element.getDeclaration()),
+                        csv(key.getUrl()),
+                        csv(key.getIssue()),
+                        statusOf(status, resolved),
+                        csv(status.map(IssueStatus::getResolution).orElse("")),
+                        Boolean.toString(removable),
+                        Boolean.toString(element.isIgnoreIssueResolved())));
+                out.write('\n');
+            }
+        }
+    }
+
+    private static void writeJson(Writer out, List<AnnotatedElement> elements,
+                                  Map<IssueKey, Optional<IssueStatus>> statuses, Set<String> resolved) throws IOException
+    {
+        out.write("[");
+        String elementSeparator = "\n";
+        for (AnnotatedElement element : elements)
+        {
+            out.write(elementSeparator);
+            elementSeparator = ",\n";
+            out.write("  {\"file\": " + json(element.getFile().toString())
+                    + ", \"line\": " + element.getLine()
+                    + ", \"element\": " + json(element.getDeclaration())
+                    + ", \"needsAllIssuesResolved\": " + element.isNeedsAllIssuesResolved()
+                    + ", \"ignored\": " + element.isIgnoreIssueResolved()
+                    + ", \"removable\": " + isRemovable(element, statuses, resolved)
+                    + ", \"issues\": [");
+            String issueSeparator = "";
+            for (IssueKey key : element.getIssues())
+            {
+                Optional<IssueStatus> status = statuses.get(key);
+                out.write(issueSeparator);
+                issueSeparator = ", ";
+                out.write("{\"url\": " + json(key.getUrl())
+                        + ", \"issue\": " + json(key.getIssue())
+                        + ", \"status\": " + json(statusOf(status, resolved))
+                        + ", \"resolution\": " + status.map(IssueStatus::getResolution).map(HackReport::json).orElse("null")
+                        + "}");
+            }
+            out.write("]}");
+        }
+        out.write("\n]\n");
+    }
+
+    /**
+     * @return true if the build would fail for the element without {@code @IgnoreIssueResolved}.
+     */
+    private static boolean isRemovable(AnnotatedElement element, Map<IssueKey, Optional<IssueStatus>> statuses,
+                                       Set<String> resolved)
+    {
+        if (element.getIssues().isEmpty())
+        {
+            return false;
+        }
+        return element.isNeedsAllIssuesResolved()
+                ? element.getIssues().stream().allMatch(k -> isResolved(statuses.get(k), resolved))
+                : element.getIssues().stream().anyMatch(k -> isResolved(statuses.get(k), resolved));
+    }
+
+    private static boolean isResolved(Optional<IssueStatus> status, Set<String> resolved)
+    {
+        return status.isPresent() && JiraIssueChecker.isResolved(status.get(), resolved);
+    }
+
+    private static String statusOf(Optional<IssueStatus> status, Set<String> resolved)
+    {
+        return !status.isPresent() ? UNKNOWN : isResolved(status, resolved) ? RESOLVED : UNRESOLVED;
+    }
+
+    private static String csv(String value)
+    {
+        return value.matches(".*[,\"\\r\\n].*") ? "\"" + value.replace("\"", "\"\"") + "\"" : value;
+    }
+
+    private static String json(String value)
+    {
+        StringBuilder toReturn = new StringBuilder("\"");
+        for (char c : value.toCharArray())
+        {
+            switch (c)
+            {
+                case '"': toReturn.append("\\\""); break;
+                case '\\': toReturn.append("\\\\"); break;
+                case '\n': toReturn.append("\\n"); break;
+                case '\r': toReturn.append("\\r"); break;
+                case '\t': toReturn.append("\\t"); break;
+                default:
+                    if (c < 0x20)
+                    {
+                        toReturn.append(String.format("\\u%04x", (int) c));
+                    }
+                    else
+                    {
+                        toReturn.append(c);
+                    }
+            }
+        }
+        return toReturn.append('"').toString();
+    }
+}
@@ -0,0 +1,393 @@
+package de.psi.pjf.hackcracker.jira;
+
+import de.psi.pjf.hackcracker.annotation.configuration.IssueTrackerConfiguration;
+import de.psi.pjf.hackcracker.tracker.IssueStatus;
+import de.psi.pjf.hackcracker.tracker.jira.JiraIssueTracker;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Local daemon answering the issue lookups of all compilations on the build
+ * machine, so they share its issue tracker clients and its in-memory statuses
+ * instead of each starting clients and retrieving the same issues again. It
+ * listens on the loopback interface and publishes its port together with a
+ * secret in the configured daemon file, only compilations that can read the
+ * file are answered. Issues requested by several compilations at the same time
+ * are retrieved once. Lookups go through a {@link JiraIssueChecker}, so the
+ * configuration, the issue status cache and the circuit breakers apply as in
+ * the compilations. Statuses are kept in memory for the cache time to live,
+ * for at most {@value #MAX_ENTRIES} issues. Usage:
+ * {@code java -cp <hack-cracker-annotation with dependencies> de.psi.pjf.hackcracker.jira.IssueDaemon}
+ */
+public class IssueDaemon
+{
+    private static final Logger LOGGER = Logger.getLogger(IssueDaemon.class.getName());
+
+    static final String PORT = "port";
+    static final String SECRET = "secret";
+    static final byte NOT_RETRIEVED = 0;
+    static final byte FOUND = 1;
+    static final byte ABSENT = 2;
+
+    private static final int MAX_KEYS_PER_REQUEST = 100_000;
+    private static final int REQUEST_READ_TIMEOUT_MILLIS = 10_000;
+    private static final int MAX_ENTRIES = 100_000;
+    private static final long EVICTION_INTERVAL_MILLIS = 60_000;
+
+    private final ServerSocket server;
+    private final String secret;
+    private final Map<IssueKey, Entry> entries = new ConcurrentHashMap<>();
+    private final AtomicLong evictedAt = new AtomicLong(System.currentTimeMillis());
+    private final ExecutorService connections = Executors.newCachedThreadPool(r -> {
+        Thread thread = new Thread(r, "hackcracker-daemon");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    IssueDaemon(int port) throws IOException
+    {
+        server = new ServerSocket();
+        server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+        byte[] random = new byte[16];
+        new SecureRandom().nextBytes(random);
+        StringBuilder hex = new StringBuilder();
+        for (byte b : random)
+        {
+            hex.append(String.format("%02x", b));
+        }
+        secret = hex.toString();
+    }
+
+    public static void main(String[] args)
+    {
+        IssueTrackerConfiguration configuration = IssueTrackerConfiguration.getConfiguration();
+        if (!configuration.getDaemonFile().isPresent())
+        {
+            System.err.println("the daemon file is switched off in the issue trackers configuration");
+            System.exit(2);
+        }
+        Path daemonFile = configuration.getDaemonFile().get();
+        try
+        {
+            IssueDaemon daemon = new IssueDaemon(configuration.getDaemonPort());
+            daemon.publish(daemonFile);
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> daemon.unpublish(daemonFile)));
+            System.out.println("issue daemon listening on port " + daemon.server.getLocalPort()
+                    + ", published in " + daemonFile);
+            daemon.serve(configuration.getIdleClientTimeout());
+        }
+        catch (IOException ex)
+        {
+            ex.printStackTrace();
+            System.exit(2);
+        }
+    }
+
+    /**
+     * Writes port and secret to the daemon file, readable by the owner only where
+     * the file system supports it.
+     */
+    void publish(Path daemonFile) throws IOException
+    {
+        Path directory = daemonFile.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        Properties published = new Properties();
+        published.setProperty(PORT, Integer.toString(server.getLocalPort()));
+        published.setProperty(SECRET, secret);
+        Path temporary = Files.createTempFile(directory, daemonFile.getFileName().toString(), ".tmp");
+        try
+        {
+            try
+            {
+                Files.setPosixFilePermissions(temporary, PosixFilePermissions.fromString("rw-------"));
+            }
+            catch (UnsupportedOperationException ex)
+            {
+                // the file is as private as the directory it is in
+            }
+            try (OutputStream out = Files.newOutputStream(temporary))
+            {
+                published.store(out, "hackcracker issue daemon");
+            }
+            try
+            {
+                Files.move(temporary, daemonFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            }
+            catch (AtomicMoveNotSupportedException ex)
+            {
+                Files.move(temporary, daemonFile, StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        finally
+        {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    private void unpublish(Path daemonFile)
+    {
+        try
+        {
+            Files.deleteIfExists(daemonFile);
+            server.close();
+        }
+        catch (IOException ex)
+        {
+            LOGGER.log(Level.WARNING, "there was an exception when stopping the issue daemon", ex);
+        }
+    }
+
+    /**
+     * Answers lookups until the daemon is stopped, issue tracker clients are kept
+     * open between lookups until they have not been used for the idle timeout.
+     */
+    void serve(Duration idleClientTimeout)
+    {
+        JiraIssueTracker.holdClients(idleClientTimeout);
+        try
+        {
+            while (!server.isClosed())
+            {
+                Socket socket;
+                try
+                {
+                    socket = server.accept();
+                }
+                catch (IOException ex)
+                {
+                    if (!server.isClosed())
+                    {
+                        LOGGER.log(Level.WARNING, "there was an exception when accepting a lookup", ex);
+                    }
+                    continue;
+                }
+                connections.execute(() -> answer(socket));
+            }
+        }
+        finally
+        {
+            connections.shutdownNow();
+            JiraIssueTracker.releaseClients();
+        }
+    }
+
+    /**
+     * Reads the secret, the time the compilation waits for the answer and the
+     * issues to look up, then answers within that time with one state per issue
+     * in the same order - {@link #FOUND} followed by the status, {@link #ABSENT}
+     * if the issue tracker does not know the issue or {@link #NOT_RETRIEVED} if
+     * it has not been reachable in time.
+     */
+    private void answer(Socket socket)
+    {
+        try (Socket connection = socket)
+        {
+            connection.setSoTimeout(REQUEST_READ_TIMEOUT_MILLIS);
+            DataInputStream in = new DataInputStream(new BufferedInputStream(connection.getInputStream()));
+            byte[] given = in.readUTF().getBytes(StandardCharsets.UTF_8);
+            if (!MessageDigest.isEqual(given, secret.getBytes(StandardCharsets.UTF_8)))
+            {
+                return;
+            }
+            long timeoutMillis = in.readLong();
+            int count = in.readInt();
+            if (count < 0 || count > MAX_KEYS_PER_REQUEST)
+            {
+                return;
+            }
+            List<IssueKey> keys = new ArrayList<>(count);
+            for (int i = 0; i < count; i++)
+            {
+                keys.add(new IssueKey(in.readUTF(), in.readUTF(), in.readUTF()));
+            }
+            IssueTrackerConfiguration configuration = IssueTrackerConfiguration.getConfiguration();
+            long deadline = System.nanoTime() + Math.min(configuration.getTimeBudget().toNanos(),
+                    TimeUnit.MILLISECONDS.toNanos(Math.max(0, timeoutMillis)));
+            List<CompletableFuture<Optional<IssueStatus>>> statuses = resolve(configuration, keys);
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(connection.getOutputStream()));
+            for (CompletableFuture<Optional<IssueStatus>> status : statuses)
+            {
+                Optional<IssueStatus> answer = await(status, deadline);
+                if (answer == null)
+                {
+                    out.writeByte(NOT_RETRIEVED);
+                }
+                else if (answer.isPresent())
+                {
+                    out.writeByte(FOUND);
+                    out.writeUTF(IssueStatusCache.format(answer.get()));
+                }
+                else
+                {
+                    out.writeByte(ABSENT);
+                }
+            }
+            out.flush();
+        }
+        catch (IOException | RuntimeException ex)
+        {
+            LOGGER.log(Level.FINE, "there was an exception when answering a lookup", ex);
+        }
+    }
+
+    /**
+     * @return a status per key, shared with everyone asking for the same issue
+     * until it is older than the cache time to live. Issues are retrieved in the
+     * background, so their statuses are kept also for compilations that have
+     * stopped waiting.
+     */
+    List<CompletableFuture<Optional<IssueStatus>>> resolve(IssueTrackerConfiguration configuration, List<IssueKey> keys)
+    {
+        long now = System.currentTimeMillis();
+        Duration timeToLive = configuration.getCacheTtl();
+        evict(timeToLive, now);
+        List<CompletableFuture<Optional<IssueStatus>>> toReturn = new ArrayList<>(keys.size());
+        Map<IssueKey, CompletableFuture<Optional<IssueStatus>>> toRetrieve = new LinkedHashMap<>();
+        for (IssueKey key : keys)
+        {
+            Entry entry = entries.compute(key, (k, existing) ->
+                    existing == null || existing.isExpired(timeToLive, now) ? new Entry(now) : existing);
+            if (entry.claim())
+            {
+                toRetrieve.put(key, entry.status);
+            }
+            toReturn.add(entry.status);
+        }
+        if (!toRetrieve.isEmpty())
+        {
+            try
+            {
+                connections.execute(() -> retrieve(configuration, toRetrieve));
+            }
+            catch (RejectedExecutionException ex)
+            {
+                notRetrieved(toRetrieve);
+            }
+        }
+        return toReturn;
+    }
+
+    private static void retrieve(IssueTrackerConfiguration configuration,
+                                 Map<IssueKey, CompletableFuture<Optional<IssueStatus>>> toRetrieve)
+    {
+        try (JiraIssueChecker checker = new JiraIssueChecker(configuration, null, false))
+        {
+            checker.lookupKeys(toRetrieve.keySet());
+            toRetrieve.forEach((key, status) -> {
+                if (checker.isRetrieved(key))
+                {
+                    status.complete(checker.getCheckedStatus(key));
+                }
+            });
+        }
+        finally
+        {
+            notRetrieved(toRetrieve);
+        }
+    }
+
+    /**
+     * Not retrieved now, the next lookup tries again.
+     */
+    private static void notRetrieved(Map<IssueKey, CompletableFuture<Optional<IssueStatus>>> toRetrieve)
+    {
+        toRetrieve.values().forEach(s -> s.completeExceptionally(new IllegalStateException("not retrieved")));
+    }
+
+    /**
+     * Drops expired statuses every minute, and all statuses already retrieved if
+     * there are still more than {@link #MAX_ENTRIES}. The issue status cache
+     * still has them for the next lookup.
+     */
+    private void evict(Duration timeToLive, long now)
+    {
+        long last = evictedAt.get();
+        if ((now - last < EVICTION_INTERVAL_MILLIS && entries.size() < MAX_ENTRIES) || !evictedAt.compareAndSet(last, now))
+        {
+            return;
+        }
+        entries.values().removeIf(entry -> entry.isExpired(timeToLive, now));
+        if (entries.size() >= MAX_ENTRIES)
+        {
+            entries.values().removeIf(entry -> entry.status.isDone());
+        }
+    }
+
+    /**
+     * @return the status, null if it is not retrieved until the deadline.
+     */
+    private static Optional<IssueStatus> await(CompletableFuture<Optional<IssueStatus>> status, long deadline)
+    {
+        try
+        {
+            return status.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        }
+        catch (InterruptedException ex)
+        {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+        catch (Exception ex)
+        {
+            return null;
+        }
+    }
+
+    private static class Entry
+    {
+        private final long createdAt;
+        private final CompletableFuture<Optional<IssueStatus>> status = new CompletableFuture<>();
+        private final AtomicBoolean claimed = new AtomicBoolean();
+
+        private Entry(long aCreatedAt)
+        {
+            createdAt = aCreatedAt;
+        }
+
+        /**
+         * @return true for the only caller that has to retrieve the status.
+         */
+        private boolean claim()
+        {
+            return claimed.compareAndSet(false, true);
+        }
+
+        private boolean isExpired(Duration timeToLive, long now)
+        {
+            return status.isDone() && (status.isCompletedExceptionally() || now - createdAt >= timeToLive.toMillis());
+        }
+    }
+}
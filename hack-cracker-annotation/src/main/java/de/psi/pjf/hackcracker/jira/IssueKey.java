@@ -0,0 +1,107 @@
+package de.psi.pjf.hackcracker.jira;
+
+import de.psi.pjf.hackcracker.annotation.FixForIssue;
+import de.psi.pjf.hackcracker.annotation.FixForIssue.IssueTrackerType;
+import java.util.Locale;
+import java.util.Objects;
+
+/**
+ * Identifies a single issue on a single issue tracker instance. Jira issue keys
+ * are case insensitive, so the key is kept in its canonical upper case form. The
+ * type of the issue tracker selects its backend, an url always belongs to a
+ * single issue tracker, so the type is not part of the identity.
+ */
+public final class IssueKey
+{
+    private static final String BROWSE = "browse/";
+
+    private final String url;
+    private final String issue;
+    private final String trackerType;
+
+    public IssueKey(String aUrl, String aIssue)
+    {
+        this(aUrl, aIssue, IssueTrackerType.JIRA.name());
+    }
+
+    public IssueKey(String aUrl, String aIssue, String aTrackerType)
+    {
+        url = Objects.requireNonNull(aUrl);
+        issue = Objects.requireNonNull(aIssue).trim().toUpperCase(Locale.ROOT);
+        trackerType = Objects.requireNonNull(aTrackerType);
+    }
+
+    public static IssueKey of(FixForIssue issueInformation)
+    {
+        return new IssueKey(issueInformation.url(), issueInformation.issue(), getTrackerType(issueInformation));
+    }
+
+    /**
+     * @return the custom tracker type of the issue if it has one, the name of its {@link IssueTrackerType} otherwise.
+     */
+    public static String getTrackerType(FixForIssue issueInformation)
+    {
+        return issueInformation.customTrackerType().isEmpty()
+                ? issueInformation.trackerType().name()
+                : issueInformation.customTrackerType();
+    }
+
+    /**
+     * @param issue browse url of the issue, as returned by {@link #toString()}.
+     * @return key of the issue on a Jira issue tracker.
+     */
+    static IssueKey parse(String issue)
+    {
+        int separator = issue.lastIndexOf(BROWSE);
+        if (separator < 0)
+        {
+            throw new IllegalArgumentException("malformed issue: " + issue);
+        }
+        return new IssueKey(issue.substring(0, separator), issue.substring(separator + BROWSE.length()));
+    }
+
+    public String getUrl()
+    {
+        return url;
+    }
+
+    public String getIssue()
+    {
+        return issue;
+    }
+
+    /**
+     * @return type of the issue tracker, the name of its {@link IssueTrackerType} or its custom type.
+     */
+    public String getTrackerType()
+    {
+        return trackerType;
+    }
+
+    @Override
+    public boolean equals(Object o)
+    {
+        if (this == o)
+        {
+            return true;
+        }
+        if (!(o instanceof IssueKey))
+        {
+            return false;
+        }
+        IssueKey other = (IssueKey) o;
+        return url.equals(other.url) && issue.equals(other.issue);
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return 31 * url.hashCode() + issue.hashCode();
+    }
+
+    @Override
+    public String toString()
+    {
+        return url + BROWSE + issue;
+    }
+}
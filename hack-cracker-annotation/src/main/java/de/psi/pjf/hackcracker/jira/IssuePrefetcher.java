@@ -0,0 +1,117 @@
+package de.psi.pjf.hackcracker.jira;
+
+import de.psi.pjf.hackcracker.annotation.configuration.IssueTrackerConfiguration;
+import de.psi.pjf.hackcracker.tracker.IssueStatus;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Looks up all issues referenced in source directories in one batched pass,
+ * before anything is compiled. Like in a compilation the issues are retrieved
+ * in batches per issue tracker, all issue trackers in parallel, and their
+ * statuses end up in the {@link IssueStatusCache} shared by all compilations
+ * on the machine, together with the issues the issue trackers do not know.
+ * Compilations that follow within the cache time to live find every issue there
+ * and do not call issue trackers at all, unless their output is verbose, as the
+ * details of issues it describes are not cached.
+ */
+public class IssuePrefetcher
+{
+    private final IssueTrackerConfiguration configuration;
+
+    public IssuePrefetcher(IssueTrackerConfiguration aConfiguration)
+    {
+        configuration = aConfiguration;
+    }
+
+    /**
+     * @param sources source directories to scan for {@code @FixForIssue} annotations.
+     * @param snapshotFile {@link IssueSnapshot} to update as well, null for none. Entries
+     * of issues that cannot be retrieved now are kept from the previous snapshot.
+     */
+    public Result prefetch(Collection<Path> sources, Path snapshotFile) throws IOException
+    {
+        Set<IssueKey> keys = SourceScanner.scan(sources);
+        IssueSnapshot snapshot = snapshotFile == null ? null : IssueSnapshot.read(snapshotFile);
+        List<IssueKey> notRetrieved = new ArrayList<>();
+        Optional<String> fallbackMessage;
+        // issue trackers are called even if the configuration is offline
+        try (JiraIssueChecker checker = new JiraIssueChecker(configuration, null))
+        {
+            checker.lookupKeys(keys);
+            for (IssueKey key : keys)
+            {
+                Optional<IssueStatus> status = checker.getCheckedStatus(key);
+                if (!status.isPresent())
+                {
+                    notRetrieved.add(key);
+                }
+                else if (snapshot != null)
+                {
+                    snapshot.put(key, status.get());
+                }
+            }
+            fallbackMessage = checker.constructFallbackMessage();
+        }
+        if (snapshot != null)
+        {
+            snapshot.write();
+        }
+        return new Result(keys.size(), notRetrieved, fallbackMessage, snapshot == null ? 0 : snapshot.size());
+    }
+
+    public static class Result
+    {
+        private final int issues;
+        private final List<IssueKey> notRetrieved;
+        private final Optional<String> fallbackMessage;
+        private final int snapshotSize;
+
+        private Result(int aIssues, List<IssueKey> aNotRetrieved, Optional<String> aFallbackMessage, int aSnapshotSize)
+        {
+            issues = aIssues;
+            notRetrieved = Collections.unmodifiableList(aNotRetrieved);
+            fallbackMessage = aFallbackMessage;
+            snapshotSize = aSnapshotSize;
+        }
+
+        /**
+         * @return number of distinct issues found in the sources.
+         */
+        public int getIssues()
+        {
+            return issues;
+        }
+
+        /**
+         * @return issues whose status is not known now, because their issue tracker
+         * has not answered or does not know them.
+         */
+        public List<IssueKey> getNotRetrieved()
+        {
+            return notRetrieved;
+        }
+
+        /**
+         * @return why issues could not be retrieved, if it was not just that they do not exist.
+         */
+        public Optional<String> getFallbackMessage()
+        {
+            return fallbackMessage;
+        }
+
+        /**
+         * @return number of issues in the snapshot after it has been written, 0 without snapshot.
+         */
+        public int getSnapshotSize()
+        {
+            return snapshotSize;
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package de.psi.pjf.hackcracker.jira;
+
+import de.psi.pjf.hackcracker.tracker.IssueStatus;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Statuses of issues retrieved in advance, for compilations that cannot reach
+ * the issue trackers at all. Every entry of the file maps the browse url of an
+ * issue to the time it has been retrieved and its resolution, just like the
+ * entries of the {@link IssueStatusCache}. Snapshots are written by
+ * {@link SnapshotGenerator}, large ones better as {@link IssueStatusIndex}.
+ */
+public class IssueSnapshot
+{
+    private static final Logger LOGGER = Logger.getLogger(IssueSnapshot.class.getName());
+
+    private final Path file;
+    /**
+     * All statuses of a text snapshot, only the ones put since reading of an index.
+     */
+    private final Map<IssueKey, IssueStatus> statuses;
+    private final IssueStatusIndex index;
+
+    private IssueSnapshot(Path aFile, Map<IssueKey, IssueStatus> aStatuses, IssueStatusIndex aIndex)
+    {
+        file = aFile;
+        statuses = aStatuses;
+        index = aIndex;
+    }
+
+    /**
+     * @param file snapshot file, a missing file is an empty snapshot. Files named
+     * with the extension {@link IssueStatusIndex#EXTENSION} are mapped into memory
+     * instead of being read.
+     * @return the snapshot read from the file.
+     */
+    public static IssueSnapshot read(Path file)
+    {
+        if (IssueStatusIndex.isIndex(file))
+        {
+            return new IssueSnapshot(file, new HashMap<>(), IssueStatusIndex.open(file));
+        }
+        Map<IssueKey, IssueStatus> statuses = new HashMap<>();
+        if (!Files.isRegularFile(file))
+        {
+            return new IssueSnapshot(file, statuses, null);
+        }
+        Properties properties = new Properties();
+        try (InputStream in = Files.newInputStream(file))
+        {
+            properties.load(in);
+        }
+        catch (IOException ex)
+        {
+            LOGGER.log(Level.WARNING, "there was an exception when reading the issue snapshot " + file, ex);
+            return new IssueSnapshot(file, statuses, null);
+        }
+        for (String issue : properties.stringPropertyNames())
+        {
+            try
+            {
+                statuses.put(IssueKey.parse(issue), IssueStatusCache.parse(properties.getProperty(issue)));
+            }
+            catch (IllegalArgumentException ex)
+            {
+                LOGGER.log(Level.WARNING, "skipping malformed entry of the issue snapshot " + file, ex);
+            }
+        }
+        return new IssueSnapshot(file, statuses, null);
+    }
+
+    public Path getFile()
+    {
+        return file;
+    }
+
+    public Optional<IssueStatus> get(IssueKey key)
+    {
+        IssueStatus status = statuses.get(key);
+        return status != null || index == null ? Optional.ofNullable(status) : index.get(key);
+    }
+
+    public void put(IssueKey key, IssueStatus status)
+    {
+        statuses.put(key, status);
+    }
+
+    public int size()
+    {
+        return index == null
+                ? statuses.size()
+                : index.size() + (int) statuses.keySet().stream().filter(key -> !index.get(key).isPresent()).count();
+    }
+
+    /**
+     * Replaces the snapshot file atomically, so compilations reading it at the
+     * same time never see a partially written snapshot.
+     */
+    public void write() throws IOException
+    {
+        if (index != null)
+        {
+            Map<IssueKey, IssueStatus> all = index.toMap();
+            all.putAll(statuses);
+            IssueStatusIndex.write(file, all);
+            return;
+        }
+        Properties properties = new Properties();
+        statuses.forEach((key, status) -> properties.setProperty(key.toString(), IssueStatusCache.format(status)));
+        Path directory = file.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        Path temporary = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+        try
+        {
+            try (OutputStream out = Files.newOutputStream(temporary))
+            {
+                properties.store(out, "hackcracker issue snapshot");
+            }
+            try
+            {
+                Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            }
+            catch (AtomicMoveNotSupportedException ex)
+            {
+                Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        finally
+        {
+            Files.deleteIfExists(temporary);
+        }
+    }
+}
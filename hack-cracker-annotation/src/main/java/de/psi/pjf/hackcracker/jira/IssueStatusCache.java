@@ -0,0 +1,290 @@
+package de.psi.pjf.hackcracker.jira;
+
+import de.psi.pjf.hackcracker.tracker.IssueStatus;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Issue statuses stored on disk, so they can be reused by all compilations on
+ * the machine - other modules of the same reactor build as well as later builds.
+ * There is one properties file per issue tracker instance, every entry holds the
+ * time the status has been retrieved and the resolution, or only the time for
+ * issues the issue tracker does not know. Several compilers may
+ * update the cache in parallel, so a file is only ever replaced atomically while
+ * holding a lock on its lock file, and entries written by others in the meantime
+ * are merged in.
+ */
+public class IssueStatusCache
+{
+    private static final Logger LOGGER = Logger.getLogger(IssueStatusCache.class.getName());
+    private static final long LOCK_RETRY_MILLIS = 10;
+    private static final long LOCK_TIMEOUT_MILLIS = 10_000;
+
+    private final Path directory;
+    private final Duration timeToLive;
+    private final Map<String, Map<String, Entry>> loaded = new HashMap<>();
+
+    public IssueStatusCache(Path aDirectory, Duration aTimeToLive)
+    {
+        directory = aDirectory;
+        timeToLive = aTimeToLive;
+    }
+
+    public boolean isEnabled()
+    {
+        return !timeToLive.isZero() && !timeToLive.isNegative();
+    }
+
+    /**
+     * @param key issue to look up.
+     * @return status of the issue if it has been retrieved within the time to live.
+     */
+    public synchronized Optional<IssueStatus> get(IssueKey key)
+    {
+        if (!isEnabled())
+        {
+            return Optional.empty();
+        }
+        Entry entry = loaded.computeIfAbsent(key.getUrl(), this::read).get(key.getIssue());
+        return entry == null || entry.isExpired(timeToLive, System.currentTimeMillis())
+                ? Optional.empty()
+                : Optional.ofNullable(entry.status);
+    }
+
+    /**
+     * @param key issue to look up.
+     * @return true if the issue tracker has not known the issue within the time to live.
+     */
+    public synchronized boolean isMissing(IssueKey key)
+    {
+        if (!isEnabled())
+        {
+            return false;
+        }
+        Entry entry = loaded.computeIfAbsent(key.getUrl(), this::read).get(key.getIssue());
+        return entry != null && entry.status == null && !entry.isExpired(timeToLive, System.currentTimeMillis());
+    }
+
+    /**
+     * @param key issue to look up.
+     * @return last known status of the issue, no matter how old it is.
+     */
+    public synchronized Optional<IssueStatus> getStale(IssueKey key)
+    {
+        if (!isEnabled())
+        {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(loaded.computeIfAbsent(key.getUrl(), this::read).get(key.getIssue()))
+                .map(entry -> entry.status);
+    }
+
+    /**
+     * Merges freshly retrieved statuses into the cache file of the issue tracker.
+     * @param url issue tracker instance.
+     * @param statuses statuses by issue key, empty for issues the issue tracker does not know.
+     * @param now time the issue tracker has been found not to know issues.
+     */
+    public synchronized void store(String url, Map<String, Optional<IssueStatus>> statuses, long now)
+    {
+        if (!isEnabled() || statuses.isEmpty())
+        {
+            return;
+        }
+        Map<String, Entry> entries = new HashMap<>();
+        statuses.forEach((issue, status) -> entries.put(issue,
+                new Entry(status.orElse(null), status.map(IssueStatus::getFetchedAt).orElse(now))));
+        loaded.computeIfAbsent(url, this::read).putAll(entries);
+        Path file = fileFor(url);
+        try
+        {
+            Files.createDirectories(directory);
+            try (FileChannel lockChannel = FileChannel.open(lockFileFor(file),
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+                    FileLock lock = lock(lockChannel))
+            {
+                Map<String, Entry> merged = read(url);
+                entries.forEach((issue, entry) -> merged.merge(issue, entry,
+                        (o, n) -> o.fetchedAt > n.fetchedAt ? o : n));
+                write(url, file, merged);
+            }
+        }
+        catch (IOException ex)
+        {
+            LOGGER.log(Level.WARNING, "there was an exception when writing the issue status cache " + file, ex);
+        }
+        catch (InterruptedException ex)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private Map<String, Entry> read(String url)
+    {
+        Map<String, Entry> statuses = new HashMap<>();
+        Path file = fileFor(url);
+        if (!Files.isRegularFile(file))
+        {
+            return statuses;
+        }
+        Properties properties = new Properties();
+        try (InputStream in = Files.newInputStream(file))
+        {
+            properties.load(in);
+        }
+        catch (IOException ex)
+        {
+            LOGGER.log(Level.WARNING, "there was an exception when reading the issue status cache " + file, ex);
+            return statuses;
+        }
+        for (String issue : properties.stringPropertyNames())
+        {
+            try
+            {
+                statuses.put(issue, fromEntry(properties.getProperty(issue)));
+            }
+            catch (IllegalArgumentException ex)
+            {
+                // a broken entry is simply retrieved again
+            }
+        }
+        return statuses;
+    }
+
+    private void write(String url, Path file, Map<String, Entry> statuses) throws IOException
+    {
+        Properties properties = new Properties();
+        statuses.forEach((issue, entry) -> properties.setProperty(issue, toEntry(entry)));
+        Path temporary = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+        try
+        {
+            try (OutputStream out = Files.newOutputStream(temporary))
+            {
+                properties.store(out, url);
+            }
+            try
+            {
+                Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            }
+            catch (AtomicMoveNotSupportedException ex)
+            {
+                Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        finally
+        {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    /**
+     * @return the time the status has been retrieved and the resolution, as written to the cache,
+     * snapshots and answers of the issue daemon.
+     */
+    static String format(IssueStatus status)
+    {
+        return status.getFetchedAt() + ";" + (status.getResolution() == null ? "" : status.getResolution());
+    }
+
+    static IssueStatus parse(String entry)
+    {
+        int separator = entry.indexOf(';');
+        if (separator < 0)
+        {
+            throw new IllegalArgumentException("malformed issue status: " + entry);
+        }
+        String resolution = entry.substring(separator + 1);
+        return new IssueStatus(
+                resolution.isEmpty() ? null : resolution,
+                Long.parseLong(entry.substring(0, separator)));
+    }
+
+    /**
+     * Versions that do not know missing issues skip their entries as broken.
+     */
+    private static String toEntry(Entry entry)
+    {
+        return entry.status == null ? Long.toString(entry.fetchedAt) : format(entry.status);
+    }
+
+    private static Entry fromEntry(String entry)
+    {
+        if (entry.indexOf(';') < 0)
+        {
+            return new Entry(null, Long.parseLong(entry));
+        }
+        IssueStatus status = parse(entry);
+        return new Entry(status, status.getFetchedAt());
+    }
+
+    /**
+     * File locks are held by the whole JVM, so compilers running in parallel
+     * threads of one build get an {@link OverlappingFileLockException} instead
+     * of waiting.
+     */
+    private static FileLock lock(FileChannel channel) throws IOException, InterruptedException
+    {
+        long deadline = System.currentTimeMillis() + LOCK_TIMEOUT_MILLIS;
+        while (true)
+        {
+            try
+            {
+                return channel.lock();
+            }
+            catch (OverlappingFileLockException ex)
+            {
+                if (System.currentTimeMillis() > deadline)
+                {
+                    throw new IOException("timed out waiting for the lock", ex);
+                }
+                Thread.sleep(LOCK_RETRY_MILLIS);
+            }
+        }
+    }
+
+    private Path fileFor(String url)
+    {
+        return directory.resolve(url.replaceAll("[^A-Za-z0-9.-]", "_") + ".properties");
+    }
+
+    private static Path lockFileFor(Path file)
+    {
+        return file.resolveSibling(file.getFileName() + ".lock");
+    }
+
+    /**
+     * Cached status of an issue, without a status for issues the issue tracker does not know.
+     */
+    private static final class Entry
+    {
+        private final IssueStatus status;
+        private final long fetchedAt;
+
+        private Entry(IssueStatus aStatus, long aFetchedAt)
+        {
+            status = aStatus;
+            fetchedAt = aFetchedAt;
+        }
+
+        private boolean isExpired(Duration timeToLive, long now)
+        {
+            return now - fetchedAt >= timeToLive.toMillis();
+        }
+    }
+}
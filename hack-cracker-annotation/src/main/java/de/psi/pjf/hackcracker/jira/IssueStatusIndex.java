@@ -0,0 +1,446 @@
+package de.psi.pjf.hackcracker.jira;
+
+import de.psi.pjf.hackcracker.tracker.IssueStatus;
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Binary file of issue statuses, mapped into memory instead of being parsed,
+ * for snapshots of tens of thousands of issues. A lookup is a binary search
+ * over the entries sorted by the hash of the issue, nothing is read before and
+ * nothing but the entry found is ever decoded. Layout, all numbers big endian:
+ * <pre>
+ * int magic, int version, int number of entries
+ * per entry: long hash, long fetched at, int key offset, int key length,
+ *            int resolution offset, int resolution length (-1 if unresolved)
+ * UTF-8 of all keys and distinct resolutions
+ * </pre>
+ * The key of an entry is the browse url of the issue, like in {@link IssueSnapshot}.
+ * A mapping is never released before it is garbage collected, so all compilations
+ * in the JVM share the one of a file until the file is replaced.
+ */
+public final class IssueStatusIndex
+{
+    /**
+     * Extension of index files, snapshot files with other names are text files.
+     */
+    public static final String EXTENSION = ".idx";
+
+    private static final Logger LOGGER = Logger.getLogger(IssueStatusIndex.class.getName());
+    private static final int MAGIC = 0x48434B49;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 12;
+    private static final int ENTRY_SIZE = 32;
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+    private static final IssueStatusIndex EMPTY = new IssueStatusIndex(ByteBuffer.allocate(HEADER_SIZE), 0, null);
+
+    /**
+     * Windows cannot replace a file while it is mapped, so the index is read there instead.
+     */
+    private static final boolean MAPPABLE = !System.getProperty("os.name", "").toLowerCase(Locale.ROOT).startsWith("windows");
+
+    private static final Map<Path, IssueStatusIndex> OPENED = new ConcurrentHashMap<>();
+
+    private final ByteBuffer buffer;
+    private final int size;
+    private final FileVersion version;
+
+    private IssueStatusIndex(ByteBuffer aBuffer, int aSize, FileVersion aVersion)
+    {
+        buffer = aBuffer;
+        size = aSize;
+        version = aVersion;
+    }
+
+    /**
+     * @return true if the file is an index rather than a text snapshot.
+     */
+    public static boolean isIndex(Path file)
+    {
+        return file.getFileName() != null && file.getFileName().toString().endsWith(EXTENSION);
+    }
+
+    /**
+     * Maps the file into memory, unless it is still mapped since it has last
+     * been modified. The mapping stays valid after the file has been replaced
+     * by a newer index, lookups keep seeing the old one.
+     * @param file index file, a missing or malformed file is an empty index.
+     */
+    public static IssueStatusIndex open(Path file)
+    {
+        Path path = file.toAbsolutePath().normalize();
+        FileVersion version;
+        try
+        {
+            BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            version = new FileVersion(attributes.lastModifiedTime(), attributes.size());
+        }
+        catch (NoSuchFileException ex)
+        {
+            OPENED.remove(path);
+            return EMPTY;
+        }
+        catch (IOException ex)
+        {
+            LOGGER.log(Level.WARNING, "there was an exception when opening the issue status index " + file, ex);
+            return EMPTY;
+        }
+        IssueStatusIndex opened = OPENED.get(path);
+        if (opened != null && opened.version.equals(version))
+        {
+            return opened;
+        }
+        IssueStatusIndex toReturn = map(path, version);
+        if (toReturn != EMPTY)
+        {
+            OPENED.put(path, toReturn);
+        }
+        return toReturn;
+    }
+
+    private static IssueStatusIndex map(Path file, FileVersion version)
+    {
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ))
+        {
+            long length = channel.size();
+            if (length < HEADER_SIZE || length > Integer.MAX_VALUE)
+            {
+                LOGGER.log(Level.WARNING, "ignoring the issue status index " + file + " of " + length + " bytes");
+                return EMPTY;
+            }
+            buffer = MAPPABLE ? channel.map(FileChannel.MapMode.READ_ONLY, 0, length) : read(channel, (int) length);
+        }
+        catch (NoSuchFileException ex)
+        {
+            return EMPTY;
+        }
+        catch (IOException ex)
+        {
+            LOGGER.log(Level.WARNING, "there was an exception when opening the issue status index " + file, ex);
+            return EMPTY;
+        }
+        int size = buffer.getInt(8);
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION || size < 0
+                || HEADER_SIZE + (long) size * ENTRY_SIZE > buffer.capacity())
+        {
+            LOGGER.log(Level.WARNING, "ignoring the issue status index " + file + ", it is not an index of version " + VERSION);
+            return EMPTY;
+        }
+        IssueStatusIndex toReturn = new IssueStatusIndex(buffer, size, version);
+        if (!toReturn.isConsistent())
+        {
+            LOGGER.log(Level.WARNING, "ignoring the issue status index " + file + ", it is corrupt");
+            return EMPTY;
+        }
+        return toReturn;
+    }
+
+    private static ByteBuffer read(FileChannel channel, int length) throws IOException
+    {
+        ByteBuffer toReturn = ByteBuffer.allocate(length);
+        while (toReturn.hasRemaining() && channel.read(toReturn) >= 0)
+        {
+            // reads until the buffer is full
+        }
+        if (toReturn.hasRemaining())
+        {
+            throw new IOException("the file has been truncated while reading it");
+        }
+        return toReturn;
+    }
+
+    /**
+     * Checks all entries once, so lookups never read beyond the file and the
+     * binary search finds every entry.
+     */
+    private boolean isConsistent()
+    {
+        int stringsStart = entryOffset(size);
+        for (int i = 0; i < size; i++)
+        {
+            int entry = entryOffset(i);
+            int resolutionLength = buffer.getInt(entry + 28);
+            if (i > 0 && hashAt(i - 1) > hashAt(i)
+                    || !isWithinStrings(stringsStart, buffer.getInt(entry + 16), buffer.getInt(entry + 20))
+                    || resolutionLength != -1 && !isWithinStrings(stringsStart, buffer.getInt(entry + 24), resolutionLength))
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean isWithinStrings(int stringsStart, int offset, int length)
+    {
+        return offset >= stringsStart && length >= 0 && (long) offset + length <= buffer.capacity();
+    }
+
+    public int size()
+    {
+        return size;
+    }
+
+    public Optional<IssueStatus> get(IssueKey key)
+    {
+        byte[] issue = key.toString().getBytes(StandardCharsets.UTF_8);
+        long hash = hash(issue);
+        int low = 0;
+        int high = size - 1;
+        while (low <= high)
+        {
+            int middle = (low + high) >>> 1;
+            long middleHash = hashAt(middle);
+            if (middleHash < hash)
+            {
+                low = middle + 1;
+            }
+            else if (middleHash > hash)
+            {
+                high = middle - 1;
+            }
+            else
+            {
+                return find(middle, hash, issue);
+            }
+        }
+        return Optional.empty();
+    }
+
+    private Optional<IssueStatus> find(int found, long hash, byte[] issue)
+    {
+        int first = found;
+        while (first > 0 && hashAt(first - 1) == hash)
+        {
+            first--;
+        }
+        for (int i = first; i < size && hashAt(i) == hash; i++)
+        {
+            int entry = entryOffset(i);
+            if (equalsAt(buffer.getInt(entry + 16), buffer.getInt(entry + 20), issue))
+            {
+                int resolutionLength = buffer.getInt(entry + 28);
+                return Optional.of(new IssueStatus(
+                        resolutionLength < 0 ? null : decode(buffer.getInt(entry + 24), resolutionLength),
+                        buffer.getLong(entry + 8)));
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Decodes all entries, for updating the index.
+     */
+    public Map<IssueKey, IssueStatus> toMap()
+    {
+        Map<IssueKey, IssueStatus> statuses = new HashMap<>();
+        for (int i = 0; i < size; i++)
+        {
+            int entry = entryOffset(i);
+            String issue = decode(buffer.getInt(entry + 16), buffer.getInt(entry + 20));
+            int resolutionLength = buffer.getInt(entry + 28);
+            try
+            {
+                statuses.put(IssueKey.parse(issue), new IssueStatus(
+                        resolutionLength < 0 ? null : decode(buffer.getInt(entry + 24), resolutionLength),
+                        buffer.getLong(entry + 8)));
+            }
+            catch (IllegalArgumentException ex)
+            {
+                LOGGER.log(Level.WARNING, "skipping malformed entry of the issue status index", ex);
+            }
+        }
+        return statuses;
+    }
+
+    /**
+     * Replaces the index file atomically, so compilations opening it at the
+     * same time never see a partially written index.
+     */
+    public static void write(Path file, Map<IssueKey, IssueStatus> statuses) throws IOException
+    {
+        List<Entry> entries = new ArrayList<>(statuses.size());
+        Map<String, Integer> resolutionOffsets = new HashMap<>();
+        List<byte[]> strings = new ArrayList<>();
+        int offset = HEADER_SIZE + statuses.size() * ENTRY_SIZE;
+        for (Map.Entry<IssueKey, IssueStatus> status : statuses.entrySet())
+        {
+            byte[] issue = status.getKey().toString().getBytes(StandardCharsets.UTF_8);
+            strings.add(issue);
+            Entry entry = new Entry(hash(issue), status.getValue().getFetchedAt(), offset, issue.length);
+            offset += issue.length;
+            String resolution = status.getValue().getResolution();
+            if (resolution != null)
+            {
+                byte[] bytes = resolution.getBytes(StandardCharsets.UTF_8);
+                Integer resolutionOffset = resolutionOffsets.get(resolution);
+                if (resolutionOffset == null)
+                {
+                    resolutionOffset = offset;
+                    resolutionOffsets.put(resolution, offset);
+                    strings.add(bytes);
+                    offset += bytes.length;
+                }
+                entry.resolutionOffset = resolutionOffset;
+                entry.resolutionLength = bytes.length;
+            }
+            entries.add(entry);
+        }
+        entries.sort(Comparator.comparingLong(e -> e.hash));
+        ByteBuffer buffer = ByteBuffer.allocate(offset);
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(entries.size());
+        for (Entry entry : entries)
+        {
+            buffer.putLong(entry.hash).putLong(entry.fetchedAt).putInt(entry.keyOffset).putInt(entry.keyLength)
+                    .putInt(entry.resolutionOffset).putInt(entry.resolutionLength);
+        }
+        strings.forEach(buffer::put);
+        // through Buffer, as JDK 9+ would link ByteBuffer.flip() which Java 8 lacks
+        ((Buffer) buffer).flip();
+        Path directory = file.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        Path temporary = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+        try
+        {
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE))
+            {
+                while (buffer.hasRemaining())
+                {
+                    channel.write(buffer);
+                }
+            }
+            try
+            {
+                Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            }
+            catch (AtomicMoveNotSupportedException ex)
+            {
+                Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        finally
+        {
+            Files.deleteIfExists(temporary);
+            // a file written within the resolution of its modification time may look unchanged
+            OPENED.remove(file.toAbsolutePath().normalize());
+        }
+    }
+
+    private int entryOffset(int index)
+    {
+        return HEADER_SIZE + index * ENTRY_SIZE;
+    }
+
+    private long hashAt(int index)
+    {
+        return buffer.getLong(entryOffset(index));
+    }
+
+    private boolean equalsAt(int offset, int length, byte[] issue)
+    {
+        if (length != issue.length)
+        {
+            return false;
+        }
+        for (int i = 0; i < length; i++)
+        {
+            if (buffer.get(offset + i) != issue[i])
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private String decode(int offset, int length)
+    {
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++)
+        {
+            bytes[i] = buffer.get(offset + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 64 bit FNV-1a, the same on every platform and in every version of Java.
+     */
+    private static long hash(byte[] bytes)
+    {
+        long hash = FNV_OFFSET_BASIS;
+        for (byte b : bytes)
+        {
+            hash ^= b & 0xff;
+            hash *= FNV_PRIME;
+        }
+        return hash;
+    }
+
+    /**
+     * What tells a replaced index file from the one mapped before.
+     */
+    private static class FileVersion
+    {
+        private final FileTime modified;
+        private final long length;
+
+        private FileVersion(FileTime aModified, long aLength)
+        {
+            modified = aModified;
+            length = aLength;
+        }
+
+        @Override
+        public boolean equals(Object other)
+        {
+            return other instanceof FileVersion && ((FileVersion) other).modified.equals(modified)
+                    && ((FileVersion) other).length == length;
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return modified.hashCode() * 31 + Long.hashCode(length);
+        }
+    }
+
+    private static class Entry
+    {
+        private final long hash;
+        private final long fetchedAt;
+        private final int keyOffset;
+        private final int keyLength;
+        private int resolutionOffset = -1;
+        private int resolutionLength = -1;
+
+        private Entry(long aHash, long aFetchedAt, int aKeyOffset, int aKeyLength)
+        {
+            hash = aHash;
+            fetchedAt = aFetchedAt;
+            keyOffset = aKeyOffset;
+            keyLength = aKeyLength;
+        }
+    }
+}
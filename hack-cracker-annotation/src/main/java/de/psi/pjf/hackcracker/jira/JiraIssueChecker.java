@@ -1,142 +1,946 @@
 package de.psi.pjf.hackcracker.jira;
 
-import ch.qos.logback.classic.Level;
-import ch.qos.logback.classic.Logger;
-import com.atlassian.jira.rest.client.api.JiraRestClient;
-import com.atlassian.jira.rest.client.api.JiraRestClientFactory;
-import com.atlassian.jira.rest.client.api.domain.Comment;
-import com.atlassian.jira.rest.client.api.domain.Issue;
-import com.atlassian.jira.rest.client.api.domain.Resolution;
-import com.atlassian.jira.rest.client.auth.AnonymousAuthenticationHandler;
-import com.atlassian.jira.rest.client.internal.async.AsynchronousJiraRestClientFactory;
-import com.google.common.base.Preconditions;
 import de.psi.pjf.hackcracker.annotation.FixForIssue;
-import static de.psi.pjf.hackcracker.annotation.FixForIssue.IssueTrackerType.JIRA;
 import de.psi.pjf.hackcracker.annotation.configuration.IssueTrackerConfiguration;
-import de.psi.pjf.hackcracker.annotation.configuration.IssueTrackerConfiguration.JiraInstance;
+import de.psi.pjf.hackcracker.tracker.IssueStatus;
+import de.psi.pjf.hackcracker.tracker.IssueTracker;
+import de.psi.pjf.hackcracker.tracker.IssueTrackers;
+import de.psi.pjf.hackcracker.tracker.TrackerSession;
 import java.net.URI;
-import java.net.URISyntaxException;
-import java.util.Arrays;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.concurrent.Callable;
-import org.slf4j.LoggerFactory;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
 
 /**
  *
  * @author akedziora
  */
-public class JiraIssueChecker
+public class JiraIssueChecker implements AutoCloseable
 {
+    private static final Logger LOGGER = Logger.getLogger(JiraIssueChecker.class.getName());
 
-    private static final Map<String, JiraRestClient> CONNECTION_CACHE = new HashMap<>();
-    private static final JiraRestClientFactory FACTORY = new AsynchronousJiraRestClientFactory();
-    private static final IssueTrackerConfiguration CONFIGURATION = IssueTrackerConfiguration.CONFIGURATION;
+    /**
+     * Limits requests per issue tracker host for everyone in this JVM, so
+     * parallel module builds do not overload the issue tracker either.
+     */
+    private static final Map<String, RequestLimiter> REQUEST_LIMITERS = new ConcurrentHashMap<>();
     
-    public static boolean checkIssueResolved(FixForIssue issueInformation)
+    private static final Map<String, CircuitBreaker> CIRCUIT_BREAKERS = new ConcurrentHashMap<>();
+
+    /**
+     * Runs the lookups started by {@link #startLookups}, which mostly wait for issue trackers.
+     */
+    private static final ExecutorService LOOKUPS = Executors.newCachedThreadPool(r -> {
+        Thread thread = new Thread(r, "hackcracker-lookup");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Statuses of all issues looked up by this checker. A future is registered
+     * before an issue is retrieved, so everyone asking for the same issue waits
+     * for a single retrieval.
+     */
+    private final Map<IssueKey, CompletableFuture<Optional<IssueStatus>>> statuses = new ConcurrentHashMap<>();
+
+    /**
+     * Details of issues for the verbose output.
+     */
+    private final Map<IssueKey, CompletableFuture<Optional<String>>> descriptions = new ConcurrentHashMap<>();
+
+    /**
+     * Time this compilation may spend waiting for issue trackers, counted from
+     * when it starts waiting first up to the deadline, so waits overlapping
+     * each other count only once.
+     */
+    private final long timeBudget;
+    private long deadline;
+    private boolean waiting;
+    
+    /**
+     * Issues that could not be retrieved in time or from an unreachable issue
+     * tracker and have been checked against their last cached status instead.
+     */
+    private final Set<IssueKey> staleIssues = ConcurrentHashMap.newKeySet();
+    
+    /**
+     * Issues that could not be retrieved in time or from an unreachable issue
+     * tracker and have never been cached.
+     */
+    private final Set<IssueKey> unknownIssues = ConcurrentHashMap.newKeySet();
+    
+    /**
+     * Issue trackers skipped because their {@link CircuitBreaker} is open.
+     */
+    private final Set<String> unreachableTrackers = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Issue trackers that have still rejected requests as too many after all retries.
+     */
+    private final Set<String> overloadedTrackers = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Snapshot all statuses are taken from in offline mode, null if issue
+     * trackers are called.
+     */
+    private final IssueSnapshot offlineSnapshot;
+
+    private final LookupMetrics metrics = new LookupMetrics();
+
+    private final IssueTrackerConfiguration configuration;
+
+    private final IssueStatusCache statusCache;
+
+    private final Set<String> resolvedResolutions;
+
+    /**
+     * Prefetched statuses consulted before the cache, null if none is configured.
+     */
+    private final IssueStatusIndex statusIndex;
+
+    /**
+     * Resources of the issue tracker backends, closed together with this checker.
+     */
+    private final Map<String, Object> resources = new LinkedHashMap<>();
+
+    private boolean closed;
+
+    /**
+     * True if lookups are sent to the {@link IssueDaemon} when it is running.
+     */
+    private final boolean useDaemon;
+
+    public JiraIssueChecker()
     {
-        Preconditions.checkArgument(issueInformation.trackerType().equals(JIRA));
-        return runWithLoggersOff(() -> {
-            Optional<Issue> issue = getIssueOptional(issueInformation);
-            return issue.isPresent() && resolutionInResolved(issue.get().getResolution());
-        });
+        this(IssueTrackerConfiguration.getConfiguration());
     }
 
-    private static Optional<Issue> getIssueOptional(FixForIssue issueInformation) throws URISyntaxException {
-        return getConnection(issueInformation.url())
-                .map((JiraRestClient c) -> c.getIssueClient().getIssue(issueInformation.issue()).claim());
+    public JiraIssueChecker(IssueTrackerConfiguration aConfiguration)
+    {
+        this(aConfiguration, aConfiguration.getOfflineSnapshot().map(IssueSnapshot::read).orElse(null));
     }
-    
-    private static <T> T runWithLoggersOff(Callable<T> toRun){
-        return runWithLoggersOff(
-                toRun, 
-                "com.atlassian.jira.rest.client.internal.async.AsynchronousHttpClientFactory$MavenUtils",
-                "com.atlassian.httpclient.apache.httpcomponents.cache.FlushableHttpCacheStorageImpl");
+
+    /**
+     * @param aConfiguration configuration to use.
+     * @param aOfflineSnapshot snapshot to take all statuses from instead of
+     * calling issue trackers, null to call them.
+     */
+    JiraIssueChecker(IssueTrackerConfiguration aConfiguration, IssueSnapshot aOfflineSnapshot)
+    {
+        this(aConfiguration, aOfflineSnapshot, true);
     }
-    
-    private static <T> T runWithLoggersOff(Callable<T> toRun, String ... loggers){
-        if(loggers.length > 0){
-            Logger logger = (Logger) LoggerFactory.getLogger(loggers[0]);        
-            Level oldLevel = logger.getLevel();
-            logger.setLevel(Level.OFF);
-            try {
-                return runWithLoggersOff(toRun, Arrays.copyOfRange(loggers, 1, loggers.length));
-            } finally {
-                logger.setLevel(oldLevel);
+
+    /**
+     * @param aUseDaemon false to always call issue trackers directly, as the daemon does itself.
+     */
+    JiraIssueChecker(IssueTrackerConfiguration aConfiguration, IssueSnapshot aOfflineSnapshot, boolean aUseDaemon)
+    {
+        configuration = aConfiguration;
+        offlineSnapshot = aOfflineSnapshot;
+        useDaemon = aUseDaemon;
+        statusCache = new IssueStatusCache(configuration.getCacheDirectory(), configuration.getCacheTtl());
+        resolvedResolutions = configuration.getResolvedResolutions();
+        statusIndex = configuration.getStatusIndex().map(IssueStatusIndex::open).orElse(null);
+        timeBudget = configuration.getTimeBudget().toNanos();
+    }
+
+    /**
+     * Closes the resources of the issue tracker backends, like the clients used by this checker.
+     */
+    @Override
+    public synchronized void close()
+    {
+        if (closed)
+        {
+            return;
+        }
+        closed = true;
+        for (Object resource : resources.values())
+        {
+            if (resource instanceof AutoCloseable)
+            {
+                try
+                {
+                    ((AutoCloseable) resource).close();
+                }
+                catch (Exception ex)
+                {
+                    LOGGER.log(Level.WARNING, "there was an exception when closing " + resource, ex);
+                }
+            }
+        }
+        resources.clear();
+    }
+
+    /**
+     * Retrieves all given issues at once - in batches of their {@link IssueTracker}
+     * instead of a request per issue. The batches of all issue tracker instances
+     * are sent concurrently and this method returns once all of them are done.
+     * Issues that have been looked up before or whose status is still valid in the
+     * {@link IssueStatusCache} are not retrieved again. Issues that are not retrieved
+     * within the time budget of the compilation fall back to their last cached status.
+     * Issues whose cached status has expired are revalidated, which asks the issue
+     * tracker only for those that have changed since.
+     * If the {@link IssueDaemon} is running, issues are asked from it first and only
+     * those it cannot tell are retrieved directly. In offline mode all statuses are
+     * taken from the snapshot instead.
+     * @param issuesInformation issues referenced in the current compilation round.
+     */
+    public void lookupIssues(Collection<FixForIssue> issuesInformation)
+    {
+        lookupKeys(issuesInformation.stream()
+                .filter(this::isSupported)
+                .map(IssueKey::of)
+                .collect(Collectors.toList()));
+    }
+
+    /**
+     * Does the same as {@link #lookupIssues} in the background, so the compilation
+     * can go on while issue trackers are called.
+     * @param issuesInformation issues referenced in the current compilation round.
+     * @return future completed once all the issues have been looked up.
+     */
+    public CompletableFuture<Void> startLookups(Collection<FixForIssue> issuesInformation)
+    {
+        List<IssueKey> keys = issuesInformation.stream()
+                .filter(this::isSupported)
+                .map(IssueKey::of)
+                .collect(Collectors.toList());
+        return keys.isEmpty()
+                ? CompletableFuture.completedFuture(null)
+                : CompletableFuture.runAsync(() -> lookupKeys(keys), LOOKUPS);
+    }
+
+    void lookupKeys(Collection<IssueKey> keys)
+    {
+        Map<String, Set<IssueKey>> keysByUrl = keys.stream()
+                .collect(Collectors.groupingBy(IssueKey::getUrl, LinkedHashMap::new, Collectors.toCollection(LinkedHashSet::new)));
+        Map<String, Map<IssueKey, CompletableFuture<Optional<IssueStatus>>>> toRetrieveByUrl = new LinkedHashMap<>();
+        for (Map.Entry<String, Set<IssueKey>> entry : keysByUrl.entrySet())
+        {
+            Map<IssueKey, CompletableFuture<Optional<IssueStatus>>> toRetrieve = new LinkedHashMap<>();
+            for (IssueKey key : entry.getValue())
+            {
+                CompletableFuture<Optional<IssueStatus>> status = new CompletableFuture<>();
+                if (statuses.putIfAbsent(key, status) != null)
+                {
+                    continue;
+                }
+                metrics.recordLookup();
+                try
+                {
+                    lookupStored(key, status, toRetrieve);
+                }
+                catch (RuntimeException ex)
+                {
+                    // the failure is reported for the issue, those waiting for its status must not wait forever
+                    status.completeExceptionally(ex);
+                }
             }
-        }else{
-            try {
-                return toRun.call();
-            } catch (Exception ex) {
-                throw new RuntimeException(ex);
+            if (!toRetrieve.isEmpty())
+            {
+                toRetrieveByUrl.put(entry.getKey(), toRetrieve);
+            }
+        }
+        if (useDaemon)
+        {
+            lookupWithDaemon(toRetrieveByUrl);
+        }
+        if (toRetrieveByUrl.isEmpty())
+        {
+            return;
+        }
+        boolean inTime = false;
+        try
+        {
+            inTime = !isTimeBudgetUsedUp() && awaitWithinTimeBudget(
+                    CompletableFuture.allOf(toRetrieveByUrl.entrySet().stream()
+                            .map(e -> lookupIssues(e.getKey(), e.getValue()))
+                            .toArray(CompletableFuture[]::new)));
+        }
+        finally
+        {
+            for (Map.Entry<String, Map<IssueKey, CompletableFuture<Optional<IssueStatus>>>> entry : toRetrieveByUrl.entrySet())
+            {
+                for (Map.Entry<IssueKey, CompletableFuture<Optional<IssueStatus>>> pending : entry.getValue().entrySet())
+                {
+                    if (!inTime && !pending.getValue().isDone())
+                    {
+                        fallBackToStaleStatus(pending.getKey(), pending.getValue());
+                    }
+                    // whatever has not been found is unknown to the issue tracker
+                    pending.getValue().complete(Optional.empty());
+                }
+                statusCache.store(entry.getKey(), collectRetrievedStatuses(entry.getValue()), System.currentTimeMillis());
             }
         }
     }
 
-    private static  boolean resolutionInResolved(Resolution r)
+    /**
+     * Completes the status from the offline snapshot, the index or the cache, or
+     * adds it to the statuses to retrieve.
+     */
+    private void lookupStored(IssueKey key, CompletableFuture<Optional<IssueStatus>> status,
+                              Map<IssueKey, CompletableFuture<Optional<IssueStatus>>> toRetrieve)
     {
-        if (r == null)
+        if (offlineSnapshot != null)
+        {
+            Optional<IssueStatus> snapshot = offlineSnapshot.get(key);
+            if (snapshot.isPresent())
+            {
+                metrics.recordCacheHit();
+            }
+            else
+            {
+                metrics.recordCacheMiss();
+                unknownIssues.add(key);
+            }
+            status.complete(snapshot);
+            return;
+        }
+        Optional<IssueStatus> cached = getIndexed(key);
+        if (!cached.isPresent())
+        {
+            cached = statusCache.get(key);
+        }
+        if (cached.isPresent() || statusCache.isMissing(key))
+        {
+            metrics.recordCacheHit();
+            status.complete(cached);
+        }
+        else
+        {
+            metrics.recordCacheMiss();
+            toRetrieve.put(key, status);
+        }
+    }
+
+    /**
+     * @return status of the issue in the index if it is not older than the time
+     * to live of cache entries.
+     */
+    private Optional<IssueStatus> getIndexed(IssueKey key)
+    {
+        if (statusIndex == null)
+        {
+            return Optional.empty();
+        }
+        long now = System.currentTimeMillis();
+        return statusIndex.get(key).filter(status -> !status.isExpired(configuration.getCacheTtl(), now));
+    }
+
+    /**
+     * Completes all statuses the daemon can tell and removes them from the issues
+     * still to retrieve. The daemon gets at most half of the remaining time budget,
+     * so what it cannot tell in time can still be retrieved directly.
+     */
+    private void lookupWithDaemon(Map<String, Map<IssueKey, CompletableFuture<Optional<IssueStatus>>>> toRetrieveByUrl)
+    {
+        Optional<Path> daemonFile = configuration.getDaemonFile();
+        if (!daemonFile.isPresent() || toRetrieveByUrl.isEmpty() || isTimeBudgetUsedUp())
+        {
+            return;
+        }
+        List<IssueKey> keys = toRetrieveByUrl.values().stream()
+                .flatMap(pending -> pending.keySet().stream())
+                .collect(Collectors.toList());
+        Map<IssueKey, Optional<IssueStatus>> answers = DaemonClient.lookup(daemonFile.get(), keys,
+                Duration.ofNanos(startWaiting() / 2));
+        Iterator<Map<IssueKey, CompletableFuture<Optional<IssueStatus>>>> byUrl = toRetrieveByUrl.values().iterator();
+        while (byUrl.hasNext())
+        {
+            Map<IssueKey, CompletableFuture<Optional<IssueStatus>>> pending = byUrl.next();
+            pending.entrySet().removeIf(e -> {
+                Optional<IssueStatus> answer = answers.get(e.getKey());
+                if (answer == null)
+                {
+                    return false;
+                }
+                e.getValue().complete(answer);
+                return true;
+            });
+            if (pending.isEmpty())
+            {
+                byUrl.remove();
+            }
+        }
+    }
+
+    private void fallBackToStaleStatus(IssueKey key, CompletableFuture<Optional<IssueStatus>> status)
+    {
+        Optional<IssueStatus> stale = statusCache.getStale(key);
+        if (stale.isPresent())
+        {
+            staleIssues.add(key);
+        }
+        else
+        {
+            unknownIssues.add(key);
+        }
+        status.complete(stale);
+    }
+
+    /**
+     * @param future future to wait for.
+     * @return true if the future is done, false if the time budget has been used up before.
+     */
+    private boolean awaitWithinTimeBudget(Future<?> future)
+    {
+        try
+        {
+            future.get(Math.max(0, startWaiting()), TimeUnit.NANOSECONDS);
+            return true;
+        }
+        catch (ExecutionException ex)
+        {
+            // failures are reported for each issue
+            return true;
+        }
+        catch (TimeoutException ex)
         {
             return false;
         }
-        switch (r.getName())
+        catch (InterruptedException ex)
         {
-            case "Done":
-            case "Fixed": return true;
-            default: return false;
+            Thread.currentThread().interrupt();
+            return false;
         }
     }
 
-    private static Optional<JiraRestClient> getConnection(String jiraUrl) throws URISyntaxException
+    /**
+     * @return time left until the deadline, which is set when this method is called first.
+     */
+    private synchronized long startWaiting()
     {
-        JiraRestClient toReturn = CONNECTION_CACHE.get(jiraUrl);
-        if (toReturn == null)
+        if (!waiting)
         {
-            toReturn = connectTo(jiraUrl);
-            CONNECTION_CACHE.put(jiraUrl, toReturn);
+            deadline = System.nanoTime() + timeBudget;
+            waiting = true;
         }
-        return Optional.ofNullable(toReturn);
+        return deadline - System.nanoTime();
     }
 
-    private static JiraRestClient connectTo(String aJiraUrl) throws URISyntaxException {
-        JiraInstance instance = CONFIGURATION.getForName(aJiraUrl);
-        return instance == null
-                ? connectToAnonymously(aJiraUrl)
-                : connectToWithBasicAuthentication(instance.getUrl(), instance.getUser(), instance.getPassword());
+    private synchronized long getRemainingTimeBudget()
+    {
+        return waiting ? deadline - System.nanoTime() : timeBudget;
+    }
+
+    private boolean isTimeBudgetUsedUp()
+    {
+        return getRemainingTimeBudget() <= 0;
+    }
+
+    /**
+     * @return what the lookups of this checker cost so far.
+     */
+    public LookupMetrics getMetrics()
+    {
+        return metrics;
+    }
+
+    /**
+     * @return a single summary of all issues that could not be retrieved within the 
+     * time budget or because their issue tracker has not been reachable.
+     */
+    public Optional<String> constructFallbackMessage()
+    {
+        if (staleIssues.isEmpty() && unknownIssues.isEmpty())
+        {
+            return Optional.empty();
+        }
+        if (offlineSnapshot != null)
+        {
+            return Optional.of("issue trackers are not called in offline mode - "
+                    + unknownIssues.size() + " issues could not be checked, they are missing in the snapshot "
+                    + offlineSnapshot.getFile() + ": " + unknownIssues);
+        }
+        String reason = isTimeBudgetUsedUp()
+                ? "the time budget of " + configuration.getTimeBudget().getSeconds() + "s for issue tracker calls has been used up"
+                : "";
+        if (!unreachableTrackers.isEmpty())
+        {
+            reason += (reason.isEmpty() ? "" : " and ") + "issue trackers " + unreachableTrackers + " have not been reachable";
+        }
+        if (!overloadedTrackers.isEmpty())
+        {
+            reason += (reason.isEmpty() ? "" : " and ") + "issue trackers " + overloadedTrackers
+                    + " have rejected requests as too many";
+        }
+        return Optional.of(reason + " - "
+                + staleIssues.size() + " issues have been checked against their last cached status and "
+                + unknownIssues.size() + " issues could not be checked at all: " + unknownIssues);
+    }
+
+    private void retrievalFailed(IssueKey key, CompletableFuture<Optional<IssueStatus>> status, Throwable failure)
+    {
+        if (failure instanceof CircuitBreaker.OpenException)
+        {
+            unreachableTrackers.add(key.getUrl());
+            fallBackToStaleStatus(key, status);
+        }
+        else if (failure instanceof RequestLimiter.RateLimitedException)
+        {
+            overloadedTrackers.add(key.getUrl());
+            fallBackToStaleStatus(key, status);
+        }
+        else
+        {
+            status.completeExceptionally(failure);
+        }
+    }
+
+    private CompletableFuture<Void> lookupIssues(String url, Map<IssueKey, CompletableFuture<Optional<IssueStatus>>> pending)
+    {
+        String type = pending.keySet().iterator().next().getTrackerType();
+        Optional<IssueTracker> tracker = IssueTrackers.get(type);
+        if (!tracker.isPresent())
+        {
+            IllegalArgumentException failure = new IllegalArgumentException("there is no backend for issue trackers of type " + type);
+            pending.forEach((key, status) -> retrievalFailed(key, status, failure));
+            return CompletableFuture.completedFuture(null);
+        }
+        // issues whose cached status has expired are only revalidated, which
+        // costs far less than retrieving them again, so they get their own chunks
+        Map<IssueKey, IssueStatus> known = new HashMap<>();
+        List<Map<IssueKey, CompletableFuture<Optional<IssueStatus>>>> chunks = new ArrayList<>();
+        List<Map<IssueKey, CompletableFuture<Optional<IssueStatus>>>> staleChunks = new ArrayList<>();
+        for (Map.Entry<IssueKey, CompletableFuture<Optional<IssueStatus>>> entry : pending.entrySet())
+        {
+            Optional<IssueStatus> stale = statusCache.getStale(entry.getKey());
+            if (stale.isPresent())
+            {
+                metrics.recordRevalidation();
+                known.put(entry.getKey(), stale.get());
+            }
+            addToChunk(stale.isPresent() ? staleChunks : chunks, tracker.get().getMaxIssuesPerLookup(), entry);
+        }
+        chunks.addAll(staleChunks);
+        return CompletableFuture.allOf(chunks.stream()
+                .map(chunk -> lookupChunk(tracker.get(), url, chunk, known))
+                .toArray(CompletableFuture[]::new));
     }
 
-    private static JiraRestClient connectToWithBasicAuthentication(String aJiraUrl, String aUser,
-                                                                   String aPassword) throws URISyntaxException
+    private static void addToChunk(List<Map<IssueKey, CompletableFuture<Optional<IssueStatus>>>> chunks, int chunkSize,
+                                   Map.Entry<IssueKey, CompletableFuture<Optional<IssueStatus>>> entry)
     {
-        URI uri = new URI(aJiraUrl);
-        JiraRestClient client = FACTORY.createWithBasicHttpAuthentication(uri, aUser, aPassword);
-        return client;
+        if (chunks.isEmpty() || chunks.get(chunks.size() - 1).size() >= chunkSize)
+        {
+            chunks.add(new LinkedHashMap<>());
+        }
+        chunks.get(chunks.size() - 1).put(entry.getKey(), entry.getValue());
     }
 
-    private static JiraRestClient connectToAnonymously(String aJiraUrl) throws URISyntaxException
+    /**
+     * @param known statuses the issues have been retrieved with before, if there
+     * are any for the issues of the chunk they are only revalidated.
+     */
+    private CompletableFuture<Void> lookupChunk(IssueTracker tracker, String url,
+                                                Map<IssueKey, CompletableFuture<Optional<IssueStatus>>> chunk,
+                                                Map<IssueKey, IssueStatus> known)
     {
-        URI uri = new URI(aJiraUrl);
-        JiraRestClient client = FACTORY.create(uri, new AnonymousAuthenticationHandler());
-        return client;
+        Map<String, IssueStatus> toRevalidate = new LinkedHashMap<>();
+        chunk.keySet().stream()
+                .filter(known::containsKey)
+                .forEach(key -> toRevalidate.put(key.getIssue(), known.get(key)));
+        Map<String, CompletableFuture<Optional<IssueStatus>>> retrieved;
+        try
+        {
+            retrieved = toRevalidate.isEmpty()
+                    ? tracker.lookup(url, chunk.keySet().stream().map(IssueKey::getIssue).collect(Collectors.toList()),
+                            new Session(tracker))
+                    : tracker.revalidate(url, toRevalidate, new Session(tracker));
+        }
+        catch (RuntimeException ex)
+        {
+            chunk.forEach((key, status) -> retrievalFailed(key, status, ex));
+            return CompletableFuture.completedFuture(null);
+        }
+        return CompletableFuture.allOf(chunk.entrySet().stream()
+                .map(e -> {
+                    CompletableFuture<Optional<IssueStatus>> status = retrieved.get(e.getKey().getIssue());
+                    if (status == null)
+                    {
+                        e.getValue().complete(Optional.empty());
+                        return CompletableFuture.completedFuture(null);
+                    }
+                    return status.handle((value, failure) -> {
+                        if (failure != null)
+                        {
+                            retrievalFailed(e.getKey(), e.getValue(), unwrap(failure));
+                        }
+                        else
+                        {
+                            e.getValue().complete(value);
+                        }
+                        return null;
+                    });
+                })
+                .toArray(CompletableFuture[]::new));
     }
 
-    public static String constructVerboseMessageForIssue(FixForIssue issueInformation) {
-        Preconditions.checkArgument(issueInformation.trackerType().equals(JIRA));
-        return runWithLoggersOff(() -> {
-            Optional<Issue> issue = getIssueOptional(issueInformation);
-            return issue.isPresent() ? constructVerboseMessageForIssue(issue.get()) : constructFailMessageForIssue(issueInformation) ;
+    /**
+     * @return retrieved statuses and those of issues the issue tracker does not know, which
+     * are not retrieved again within the time to live either.
+     */
+    private Map<String, Optional<IssueStatus>> collectRetrievedStatuses(
+            Map<IssueKey, CompletableFuture<Optional<IssueStatus>>> retrieved)
+    {
+        Map<String, Optional<IssueStatus>> toReturn = new HashMap<>();
+        retrieved.forEach((key, status) -> {
+            if (!status.isCompletedExceptionally())
+            {
+                Optional<IssueStatus> value = status.join();
+                if (value.isPresent() || !unknownIssues.contains(key))
+                {
+                    toReturn.put(key.getIssue(), value);
+                }
+            }
         });
+        return toReturn;
+    }
+
+    /**
+     * What the backends get from this checker, the requests they send all go
+     * through the same circuit breakers, request limits and metrics.
+     */
+    private class Session implements TrackerSession
+    {
+        private final IssueTracker tracker;
+
+        private Session(IssueTracker aTracker)
+        {
+            tracker = aTracker;
+        }
+
+        @Override
+        public IssueTrackerConfiguration getConfiguration()
+        {
+            return configuration;
+        }
+
+        @Override
+        public <T> CompletableFuture<T> send(String url, Supplier<CompletableFuture<T>> request)
+        {
+            CircuitBreaker breaker = getCircuitBreaker(url);
+            try
+            {
+                breaker.checkClosed();
+            }
+            catch (CircuitBreaker.OpenException ex)
+            {
+                return failed(ex);
+            }
+            return send(url, request, breaker, 0);
+        }
+
+        /**
+         * Sends the request again as long as the issue tracker rejects it as one too
+         * many, the retries are left and the pause it takes fits into the time budget.
+         */
+        private <T> CompletableFuture<T> send(String url, Supplier<CompletableFuture<T>> request, CircuitBreaker breaker,
+                                              int retries)
+        {
+            RequestLimiter limiter = getRequestLimiter(url);
+            AtomicLong started = new AtomicLong();
+            return limiter.submit(() -> {
+                started.set(System.nanoTime());
+                return request.get();
+            }, System.nanoTime() + getRemainingTimeBudget()).handle((value, failure) -> {
+                Throwable cause = failure == null ? null : unwrap(failure);
+                if (cause instanceof RequestLimiter.RateLimitedException)
+                {
+                    // the request has not been sent, the issue tracker asks for a pause beyond the time budget
+                    return JiraIssueChecker.<T>failed(cause);
+                }
+                metrics.recordCall(url, System.nanoTime() - started.get(), failure != null);
+                if (cause != null && tracker.isRateLimited(cause))
+                {
+                    metrics.recordRateLimited();
+                    Duration pause = limiter.rateLimited(tracker.getRetryAfter(cause), retries);
+                    if (retries < configuration.getMaxRetries() && pause.toNanos() < getRemainingTimeBudget())
+                    {
+                        return send(url, request, breaker, retries + 1);
+                    }
+                    return JiraIssueChecker.<T>failed(new RequestLimiter.RateLimitedException(url, retries, cause));
+                }
+                if (cause != null && isConnectionFailure(cause))
+                {
+                    breaker.recordFailure();
+                }
+                else
+                {
+                    breaker.recordSuccess();
+                    limiter.answered();
+                }
+                return cause == null ? CompletableFuture.completedFuture(value) : JiraIssueChecker.<T>failed(cause);
+            }).thenCompose(response -> response);
+        }
+
+        private boolean isConnectionFailure(Throwable failure)
+        {
+            return !(failure instanceof CircuitBreaker.OpenException) && tracker.isConnectionFailure(failure);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> T getResource(String name, Supplier<T> create)
+        {
+            synchronized (JiraIssueChecker.this)
+            {
+                if (closed)
+                {
+                    throw new IllegalStateException("the issue checker has been closed");
+                }
+                return (T) resources.computeIfAbsent(name, n -> create.get());
+            }
+        }
+    }
+
+    private static <T> CompletableFuture<T> failed(Throwable failure)
+    {
+        CompletableFuture<T> toReturn = new CompletableFuture<>();
+        toReturn.completeExceptionally(failure);
+        return toReturn;
+    }
+
+    /**
+     * Breakers are shared by all checkers of the JVM like the limiters, and replaced in the same way.
+     */
+    private CircuitBreaker getCircuitBreaker(String url)
+    {
+        Path directory = configuration.getCacheDirectory();
+        int threshold = configuration.getCircuitBreakerThreshold();
+        Duration cooldown = configuration.getCircuitBreakerCooldown();
+        return CIRCUIT_BREAKERS.compute(url,
+                (u, breaker) -> breaker != null && breaker.hasSettings(directory, threshold, cooldown)
+                        ? breaker
+                        : new CircuitBreaker(u, directory, threshold, cooldown));
+    }
+
+    /**
+     * Limiters are shared by all checkers of the JVM, a limiter is replaced when the
+     * configuration of the checker asks for other limits, for example once the
+     * configuration file has been changed.
+     */
+    private RequestLimiter getRequestLimiter(String url)
+    {
+        URI uri = URI.create(url);
+        int maxConcurrentRequests = configuration.getMaxConcurrentRequestsPerHost();
+        Duration requestTimeout = configuration.getRequestTimeout();
+        double maxRequestsPerSecond = configuration.getMaxRequestsPerSecondPerHost();
+        return REQUEST_LIMITERS.compute(uri.getHost() + ":" + uri.getPort(),
+                (h, limiter) -> limiter != null && limiter.hasLimits(maxConcurrentRequests, requestTimeout, maxRequestsPerSecond)
+                        ? limiter
+                        : new RequestLimiter(h, maxConcurrentRequests, requestTimeout, maxRequestsPerSecond));
+    }
+
+    /**
+     * @return true if there is a backend for the issue tracker of the issue.
+     */
+    public boolean isSupported(FixForIssue issueInformation)
+    {
+        return IssueTrackers.get(IssueKey.getTrackerType(issueInformation)).isPresent();
+    }
+
+    /**
+     * @return url of the issue for people.
+     */
+    public String constructBrowseUrl(FixForIssue issueInformation)
+    {
+        return IssueTrackers.get(IssueKey.getTrackerType(issueInformation))
+                .map(t -> t.constructBrowseUrl(issueInformation.url(), issueInformation.issue()))
+                .orElse(issueInformation.url() + issueInformation.issue());
+    }
+
+    public boolean checkIssueResolved(FixForIssue issueInformation)
+    {
+        if (!isSupported(issueInformation))
+        {
+            return false;
+        }
+        Optional<IssueStatus> status = getStatus(IssueKey.of(issueInformation));
+        return status.isPresent() && isResolved(status.get());
+    }
+
+    boolean isResolved(IssueStatus status)
+    {
+        return isResolved(status, resolvedResolutions);
+    }
+
+    /**
+     * @param resolvedResolutions resolutions of resolved issues, see {@link IssueTrackerConfiguration#getResolvedResolutions()}.
+     */
+    static boolean isResolved(IssueStatus status, Set<String> resolvedResolutions)
+    {
+        return status.getResolution() != null && resolvedResolutions.contains(status.getResolution());
+    }
+
+    /**
+     * @param issueInformation issue to look up.
+     * @return status of the issue if it has already been retrieved successfully,
+     * statuses the check had to fall back to are not returned.
+     */
+    public Optional<IssueStatus> getCheckedStatus(FixForIssue issueInformation)
+    {
+        return getCheckedStatus(IssueKey.of(issueInformation));
+    }
+
+    Optional<IssueStatus> getCheckedStatus(IssueKey key)
+    {
+        return isRetrieved(key) ? statuses.get(key).join() : Optional.empty();
+    }
+
+    /**
+     * @return true if the issue tracker has answered for the issue, whether it
+     * knows the issue or not.
+     */
+    boolean isRetrieved(IssueKey key)
+    {
+        CompletableFuture<Optional<IssueStatus>> status = statuses.get(key);
+        return status != null && status.isDone() && !status.isCompletedExceptionally()
+                && !staleIssues.contains(key) && !unknownIssues.contains(key);
+    }
+
+    /**
+     * @param key issue to look up.
+     * @return status the check of the issue is based on, which may also be a
+     * status the check had to fall back to, empty if the issue is unknown.
+     */
+    Optional<IssueStatus> getStatus(IssueKey key)
+    {
+        return claim(getStatusFuture(key));
+    }
+
+    private CompletableFuture<Optional<IssueStatus>> getStatusFuture(IssueKey key)
+    {
+        CompletableFuture<Optional<IssueStatus>> status = statuses.get(key);
+        if (status == null)
+        {
+            lookupKeys(Collections.singletonList(key));
+            status = statuses.get(key);
+        }
+        return status;
+    }
+
+    private Optional<String> describe(FixForIssue issueInformation)
+    {
+        IssueKey key = IssueKey.of(issueInformation);
+        Optional<IssueTracker> tracker = IssueTrackers.get(key.getTrackerType());
+        if (!tracker.isPresent() || !descriptions.containsKey(key)
+                && (offlineSnapshot != null || isTimeBudgetUsedUp() || unreachableTrackers.contains(key.getUrl())
+                        || overloadedTrackers.contains(key.getUrl())))
+        {
+            return Optional.empty();
+        }
+        CompletableFuture<Optional<String>> description = new CompletableFuture<>();
+        CompletableFuture<Optional<String>> existing = descriptions.putIfAbsent(key, description);
+        if (existing != null)
+        {
+            return existing.isCompletedExceptionally() ? Optional.empty() : existing.join();
+        }
+        try
+        {
+            CompletableFuture<Optional<String>> described = tracker.get().describe(key.getUrl(), key.getIssue(), new Session(tracker.get()));
+            if (awaitWithinTimeBudget(described) && !described.isCompletedExceptionally())
+            {
+                description.complete(described.join());
+            }
+        }
+        catch (RuntimeException ex)
+        {
+            // the verbose output falls back to the status
+        }
+        description.complete(Optional.empty());
+        return description.join();
+    }
+
+    private static <T> T claim(CompletableFuture<T> future)
+    {
+        try
+        {
+            return future.join();
+        }
+        catch (CompletionException ex)
+        {
+            Throwable cause = unwrap(ex);
+            throw cause instanceof RuntimeException ? (RuntimeException) cause : ex;
+        }
+    }
+
+    private static Throwable unwrap(Throwable failure)
+    {
+        Throwable toReturn = failure;
+        while ((toReturn instanceof CompletionException || toReturn instanceof ExecutionException)
+                && toReturn.getCause() != null)
+        {
+            toReturn = toReturn.getCause();
+        }
+        return toReturn;
+    }
+
+    public String constructVerboseMessageForIssue(FixForIssue issueInformation) {
+        Optional<IssueStatus> status = getStatus(IssueKey.of(issueInformation));
+        Optional<String> description = status.isPresent() ? describe(issueInformation) : Optional.empty();
+        if (description.isPresent())
+        {
+            return description.get();
+        }
+        if (status.isPresent())
+        {
+            return constructCachedMessageForIssue(issueInformation, status.get(),
+                    offlineSnapshot != null ? "offline snapshot" : "cache");
+        }
+        if (!unknownIssues.contains(IssueKey.of(issueInformation)))
+        {
+            return constructFailMessageForIssue(issueInformation);
+        }
+        return constructUnknownMessageForIssue(issueInformation, offlineSnapshot != null
+                ? "it is missing in the offline snapshot " + offlineSnapshot.getFile()
+                : unreachableTrackers.contains(issueInformation.url())
+                ? "the issue tracker has not been reachable"
+                : overloadedTrackers.contains(issueInformation.url())
+                ? "the issue tracker has rejected the requests as too many"
+                : "the time budget for issue tracker calls has been used up");
     }
     
-    private static String constructVerboseMessageForIssue(Issue issue){
-        return "Issue: "+issue.getKey()+" retrieved successfully \n"+
-                "summary: "+issue.getSummary()+"\n"+
-                "description: "+issue.getDescription()+"\n"+
-                "resolution: "+(issue.getResolution() != null ? issue.getResolution().getName() : null)+"\n"+
-                "created: "+issue.getCreationDate()+"\n"+
-                "due date: "+issue.getDueDate()+"\n"+
-                constructMessageForComments(issue.getComments())+"\n";
+    private static String constructCachedMessageForIssue(FixForIssue issueInformation, IssueStatus status, String source) {
+        return "Issue: "+issueInformation.issue()+" taken from "+source+" \n"+
+                "resolution: "+status.getResolution()+"\n"+
+                "retrieved: "+Instant.ofEpochMilli(status.getFetchedAt())+"\n";
+    }
+
+    private static String constructUnknownMessageForIssue(FixForIssue issueInformation, String reason) {
+        return "status of issue: "
+                +issueInformation.issue()
+                +" form jira: "
+                +issueInformation.url()
+                +" is unknown, "
+                +reason;
     }
 
     private static String constructFailMessageForIssue(FixForIssue issueInformation) {
@@ -147,14 +951,4 @@ public class JiraIssueChecker
                 +" most likely issue doesn't exist on it";
     }
 
-    private static String constructMessageForComments(Iterable<Comment> comments) {
-        String toReturn = "comments: \n";
-        for (Comment comment : comments) {
-            toReturn += "date: " + comment.getCreationDate() +  
-                    (comment.getAuthor() != null ? " author: "+ comment.getAuthor().getDisplayName() : "")+"\n";
-            toReturn += "comment: "+comment.getBody()+"\n\n";
-        }
-        return toReturn;
-    }
-
 }
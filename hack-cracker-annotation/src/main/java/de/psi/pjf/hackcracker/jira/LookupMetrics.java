@@ -0,0 +1,167 @@
+package de.psi.pjf.hackcracker.jira;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts what the issue lookups of one compilation cost: issues looked up,
+ * cache hits and misses, stale statuses revalidated, HTTP calls with their latencies and failures per
+ * issue tracker, calls rejected as too many and the time spent in the annotation processor.
+ */
+public class LookupMetrics
+{
+    private final AtomicLong lookups = new AtomicLong();
+    private final AtomicLong cacheHits = new AtomicLong();
+    private final AtomicLong cacheMisses = new AtomicLong();
+    private final AtomicLong revalidations = new AtomicLong();
+    private final AtomicLong rateLimited = new AtomicLong();
+    private final AtomicLong processingNanos = new AtomicLong();
+    private final Map<String, TrackerCalls> trackerCalls = new ConcurrentHashMap<>();
+
+    void recordLookup()
+    {
+        lookups.incrementAndGet();
+    }
+
+    void recordCacheHit()
+    {
+        cacheHits.incrementAndGet();
+    }
+
+    void recordCacheMiss()
+    {
+        cacheMisses.incrementAndGet();
+    }
+
+    void recordRevalidation()
+    {
+        revalidations.incrementAndGet();
+    }
+
+    void recordRateLimited()
+    {
+        rateLimited.incrementAndGet();
+    }
+
+    void recordCall(String url, long nanos, boolean failed)
+    {
+        trackerCalls.computeIfAbsent(url, u -> new TrackerCalls()).record(nanos, failed);
+    }
+
+    public void recordProcessing(long nanos)
+    {
+        processingNanos.addAndGet(nanos);
+    }
+
+    public long getLookups()
+    {
+        return lookups.get();
+    }
+
+    /**
+     * @return one line with all numbers, latencies of all issue trackers together.
+     */
+    public String constructSummary()
+    {
+        List<Long> latencies = new ArrayList<>();
+        long failures = 0;
+        for (TrackerCalls calls : trackerCalls.values())
+        {
+            latencies.addAll(calls.getLatencies());
+            failures += calls.failures.get();
+        }
+        Collections.sort(latencies);
+        StringBuilder toReturn = new StringBuilder("hackcracker: ")
+                .append(lookups.get()).append(" issue lookups, ")
+                .append(cacheHits.get()).append(" cache hits, ")
+                .append(cacheMisses.get()).append(" cache misses (")
+                .append(revalidations.get()).append(" revalidated), ")
+                .append(latencies.size()).append(" HTTP calls to ")
+                .append(trackerCalls.size()).append(" issue trackers");
+        if (!latencies.isEmpty())
+        {
+            toReturn.append(" (latency p50 ").append(millis(percentile(latencies, 50)))
+                    .append("ms, p90 ").append(millis(percentile(latencies, 90)))
+                    .append("ms, p99 ").append(millis(percentile(latencies, 99)))
+                    .append("ms, max ").append(millis(latencies.get(latencies.size() - 1))).append("ms)");
+        }
+        return toReturn.append(", ").append(failures).append(" failed calls (")
+                .append(rateLimited.get()).append(" rejected as too many), ")
+                .append(millis(processingNanos.get())).append("ms spent in the annotation processor")
+                .toString();
+    }
+
+    public String toJson()
+    {
+        StringBuilder toReturn = new StringBuilder("{")
+                .append("\"lookups\": ").append(lookups.get())
+                .append(", \"cacheHits\": ").append(cacheHits.get())
+                .append(", \"cacheMisses\": ").append(cacheMisses.get())
+                .append(", \"revalidations\": ").append(revalidations.get())
+                .append(", \"rateLimited\": ").append(rateLimited.get())
+                .append(", \"processingMillis\": ").append(millis(processingNanos.get()))
+                .append(", \"trackers\": [");
+        String separator = "";
+        for (Map.Entry<String, TrackerCalls> entry : new TreeMap<>(trackerCalls).entrySet())
+        {
+            List<Long> latencies = entry.getValue().getLatencies();
+            Collections.sort(latencies);
+            toReturn.append(separator)
+                    .append("{\"url\": \"").append(entry.getKey().replace("\\", "\\\\").replace("\"", "\\\""))
+                    .append("\", \"httpCalls\": ").append(latencies.size())
+                    .append(", \"failures\": ").append(entry.getValue().failures.get())
+                    .append(", \"latencyMillis\": {\"p50\": ").append(millis(percentile(latencies, 50)))
+                    .append(", \"p90\": ").append(millis(percentile(latencies, 90)))
+                    .append(", \"p99\": ").append(millis(percentile(latencies, 99)))
+                    .append(", \"max\": ").append(millis(percentile(latencies, 100)))
+                    .append("}}");
+            separator = ", ";
+        }
+        return toReturn.append("]}").toString();
+    }
+
+    /**
+     * @param sorted latencies in ascending order.
+     * @return nearest rank percentile, 0 if there are no latencies.
+     */
+    private static long percentile(List<Long> sorted, int percent)
+    {
+        if (sorted.isEmpty())
+        {
+            return 0;
+        }
+        int rank = (int) Math.ceil(percent / 100.0 * sorted.size());
+        return sorted.get(Math.max(0, rank - 1));
+    }
+
+    private static long millis(long nanos)
+    {
+        return TimeUnit.NANOSECONDS.toMillis(nanos);
+    }
+
+    private static class TrackerCalls
+    {
+        private final List<Long> latencies = new ArrayList<>();
+        private final AtomicLong failures = new AtomicLong();
+
+        private synchronized void record(long nanos, boolean failed)
+        {
+            latencies.add(nanos);
+            if (failed)
+            {
+                failures.incrementAndGet();
+            }
+        }
+
+        private synchronized List<Long> getLatencies()
+        {
+            return new ArrayList<>(latencies);
+        }
+    }
+}
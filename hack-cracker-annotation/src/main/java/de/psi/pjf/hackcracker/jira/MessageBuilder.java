@@ -0,0 +1,58 @@
+package de.psi.pjf.hackcracker.jira;
+
+/**
+ * Builds a diagnostic message of at most a given number of characters. Everything
+ * appended beyond the limit is dropped right away instead of being copied around,
+ * so a message about an issue with hundreds of comments costs no more than a short one.
+ */
+public final class MessageBuilder
+{
+    private static final String TRUNCATED = "... (truncated)";
+
+    private final StringBuilder message = new StringBuilder();
+    private final int maxLength;
+    private boolean truncated;
+
+    /**
+     * @param aMaxLength maximal number of characters of the message, 0 or less for no limit.
+     */
+    public MessageBuilder(int aMaxLength)
+    {
+        maxLength = aMaxLength > 0 ? aMaxLength : Integer.MAX_VALUE;
+    }
+
+    public MessageBuilder append(Object value)
+    {
+        return append(String.valueOf(value));
+    }
+
+    public MessageBuilder append(String value)
+    {
+        String toAppend = value == null ? "null" : value;
+        int free = maxLength - message.length();
+        if (toAppend.length() <= free)
+        {
+            message.append(toAppend);
+        }
+        else
+        {
+            message.append(toAppend, 0, Math.max(0, free));
+            truncated = true;
+        }
+        return this;
+    }
+
+    /**
+     * @return true if nothing more is appended to the message.
+     */
+    public boolean isFull()
+    {
+        return message.length() >= maxLength;
+    }
+
+    @Override
+    public String toString()
+    {
+        return truncated ? message + TRUNCATED : message.toString();
+    }
+}
@@ -0,0 +1,332 @@
+package de.psi.pjf.hackcracker.jira;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/**
+ * Limits the number of requests that are in flight to a single issue tracker
+ * host at the same time. Requests above the limit are queued and started as
+ * soon as a running one completes, nobody is blocked while waiting. A request
+ * that does not complete within the request timeout is cancelled and fails with
+ * a {@link TimeoutException}. Requests are also started at a limited rate, a
+ * token bucket holding tokens for at most one second. When the issue tracker
+ * rejects requests as too many, the rate is halved once per pause and no
+ * request is started before the time the issue tracker asks for, or a backoff
+ * growing with every retry. Requests that could only be started after their
+ * deadline fail at once with a {@link RateLimitedException}. Every answered
+ * request raises the rate again by a twentieth of the maximal rate.
+ */
+class RequestLimiter
+{
+    private static final ScheduledExecutorService TIMER = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "hackcracker-request-timeout");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Tells the time and runs delayed tasks, replaced by tests to control the time.
+     */
+    interface Clock
+    {
+        long nanoTime();
+
+        Future<?> schedule(Runnable task, long delayNanos);
+    }
+
+    private static final Clock SYSTEM_CLOCK = new Clock()
+    {
+        @Override
+        public long nanoTime()
+        {
+            return System.nanoTime();
+        }
+
+        @Override
+        public Future<?> schedule(Runnable task, long delayNanos)
+        {
+            return TIMER.schedule(task, delayNanos, TimeUnit.NANOSECONDS);
+        }
+    };
+
+    private static final double MIN_REQUESTS_PER_SECOND = 0.2;
+    private static final int RECOVERY_STEPS = 20;
+    private static final long INITIAL_BACKOFF_MILLIS = 1000;
+    private static final long MAX_BACKOFF_MILLIS = 60000;
+
+    private final Clock clock;
+    private final String host;
+    private final int maxConcurrentRequests;
+    private final Duration requestTimeout;
+    private final double maxRequestsPerSecond;
+    private final Queue<Runnable> waiting = new ArrayDeque<>();
+    private int running;
+    private double requestsPerSecond;
+    private double tokens;
+    private long refilledAt;
+    private long pausedUntil;
+
+    /**
+     * @param aHost issue tracker host the requests are sent to.
+     * @param aMaxRequestsPerSecond maximal rate requests are started at, 0 for no limit.
+     */
+    RequestLimiter(String aHost, int aMaxConcurrentRequests, Duration aRequestTimeout, double aMaxRequestsPerSecond)
+    {
+        this(SYSTEM_CLOCK, aHost, aMaxConcurrentRequests, aRequestTimeout, aMaxRequestsPerSecond);
+    }
+
+    RequestLimiter(Clock aClock, String aHost, int aMaxConcurrentRequests, Duration aRequestTimeout,
+            double aMaxRequestsPerSecond)
+    {
+        clock = aClock;
+        host = aHost;
+        maxConcurrentRequests = Math.max(1, aMaxConcurrentRequests);
+        requestTimeout = aRequestTimeout;
+        maxRequestsPerSecond = Math.max(0, aMaxRequestsPerSecond);
+        requestsPerSecond = maxRequestsPerSecond;
+        tokens = Math.max(1, maxRequestsPerSecond);
+        refilledAt = clock.nanoTime();
+        pausedUntil = refilledAt;
+    }
+
+    /**
+     * @return true if the limiter has been created with these limits.
+     */
+    boolean hasLimits(int aMaxConcurrentRequests, Duration aRequestTimeout, double aMaxRequestsPerSecond)
+    {
+        return maxConcurrentRequests == Math.max(1, aMaxConcurrentRequests) && requestTimeout.equals(aRequestTimeout)
+                && maxRequestsPerSecond == Math.max(0, aMaxRequestsPerSecond);
+    }
+
+    /**
+     * @param request starts the request and returns its future.
+     * @param deadline {@link Clock#nanoTime()} the request has to be started by, which is
+     * {@link System#nanoTime()} outside of tests.
+     * @return future completed with the result of the request.
+     */
+    <T> CompletableFuture<T> submit(Supplier<CompletableFuture<T>> request, long deadline)
+    {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        startWhenPermitted(() -> start(request, result), result, deadline);
+        return result;
+    }
+
+    /**
+     * Requests wait for their token without a place among the requests in
+     * flight, each of them reserves the next token, so it is scheduled only
+     * once unless the issue tracker asks for a pause in the meantime.
+     */
+    private void startWhenPermitted(Runnable start, CompletableFuture<?> result, long deadline)
+    {
+        long pause;
+        long wait = 0;
+        synchronized (this)
+        {
+            long now = clock.nanoTime();
+            pause = pausedUntil - now;
+            if (pause <= 0)
+            {
+                wait = reserveToken(now);
+            }
+        }
+        if (pause > 0 && clock.nanoTime() + pause - deadline > 0)
+        {
+            result.completeExceptionally(new RateLimitedException(host, Duration.ofNanos(pause)));
+        }
+        else if (pause > 0)
+        {
+            clock.schedule(() -> startWhenPermitted(start, result, deadline), pause);
+        }
+        else if (wait > 0)
+        {
+            clock.schedule(() -> startWhenReserved(start, result, deadline), wait);
+        }
+        else
+        {
+            startWhenFree(start, result, deadline);
+        }
+    }
+
+    /**
+     * Starts the request with its token, unless a pause has begun since it has been reserved.
+     */
+    private void startWhenReserved(Runnable start, CompletableFuture<?> result, long deadline)
+    {
+        boolean paused;
+        synchronized (this)
+        {
+            paused = clock.nanoTime() - pausedUntil < 0;
+        }
+        if (paused)
+        {
+            startWhenPermitted(start, result, deadline);
+        }
+        else
+        {
+            startWhenFree(start, result, deadline);
+        }
+    }
+
+    /**
+     * @return 0 if a token has been taken, the nanoseconds until the token reserved
+     * is there otherwise.
+     */
+    private long reserveToken(long now)
+    {
+        if (requestsPerSecond <= 0)
+        {
+            return 0;
+        }
+        tokens = Math.min(Math.max(1, requestsPerSecond), tokens + (now - refilledAt) * requestsPerSecond / 1e9);
+        refilledAt = now;
+        tokens--;
+        return tokens >= 0 ? 0 : (long) Math.ceil(-tokens / requestsPerSecond * 1e9);
+    }
+
+    /**
+     * Queued requests check for a pause again when a place becomes free.
+     */
+    private void startWhenFree(Runnable start, CompletableFuture<?> result, long deadline)
+    {
+        synchronized (this)
+        {
+            if (running >= maxConcurrentRequests)
+            {
+                waiting.add(() -> startWhenReserved(start, result, deadline));
+                return;
+            }
+            running++;
+        }
+        start.run();
+    }
+
+    /**
+     * Slows the requests down after the issue tracker has rejected one as too many.
+     * The other requests of a burst rejected together do not slow them down further.
+     * @param retryAfter time the issue tracker asks to wait, empty for a backoff.
+     * @param retries number of times the rejected request has already been sent again.
+     * @return how long no request is started from now on.
+     */
+    synchronized Duration rateLimited(Optional<Duration> retryAfter, int retries)
+    {
+        long now = clock.nanoTime();
+        if (maxRequestsPerSecond > 0 && now - pausedUntil >= 0)
+        {
+            requestsPerSecond = Math.max(MIN_REQUESTS_PER_SECOND, requestsPerSecond / 2);
+        }
+        tokens = 0;
+        refilledAt = now;
+        long pause = retryAfter.map(Duration::toNanos).orElseGet(() -> backoff(retries));
+        if (now + pause - pausedUntil > 0)
+        {
+            pausedUntil = now + pause;
+        }
+        return Duration.ofNanos(pausedUntil - now);
+    }
+
+    /**
+     * Raises the rate again after the issue tracker has answered a request.
+     */
+    synchronized void answered()
+    {
+        if (maxRequestsPerSecond > 0 && requestsPerSecond < maxRequestsPerSecond)
+        {
+            requestsPerSecond = Math.min(maxRequestsPerSecond, requestsPerSecond + maxRequestsPerSecond / RECOVERY_STEPS);
+        }
+    }
+
+    /**
+     * @return exponential backoff with jitter, so compilations rejected at the
+     * same time do not all come back at the same time.
+     */
+    private static long backoff(int retries)
+    {
+        long millis = Math.min(MAX_BACKOFF_MILLIS, INITIAL_BACKOFF_MILLIS << Math.min(retries, 16));
+        return TimeUnit.MILLISECONDS.toNanos(millis / 2 + ThreadLocalRandom.current().nextLong(millis / 2 + 1));
+    }
+
+    private <T> void start(Supplier<CompletableFuture<T>> request, CompletableFuture<T> result)
+    {
+        AtomicBoolean released = new AtomicBoolean();
+        Runnable releaseOnce = () -> {
+            if (released.compareAndSet(false, true))
+            {
+                release();
+            }
+        };
+        CompletableFuture<T> response;
+        try
+        {
+            response = request.get();
+        }
+        catch (RuntimeException ex)
+        {
+            releaseOnce.run();
+            result.completeExceptionally(ex);
+            return;
+        }
+        Future<?> timeout = clock.schedule(() -> {
+            releaseOnce.run();
+            result.completeExceptionally(new TimeoutException(
+                    "no response from the issue tracker within " + requestTimeout.getSeconds() + "s"));
+            response.cancel(true);
+        }, requestTimeout.toNanos());
+        response.whenComplete((value, failure) -> {
+            timeout.cancel(false);
+            releaseOnce.run();
+            if (failure != null)
+            {
+                result.completeExceptionally(failure);
+            }
+            else
+            {
+                result.complete(value);
+            }
+        });
+    }
+
+    private void release()
+    {
+        Runnable next;
+        synchronized (this)
+        {
+            running--;
+            next = waiting.poll();
+        }
+        if (next != null)
+        {
+            next.run();
+        }
+    }
+
+    /**
+     * The issue tracker has still rejected a request as too many after all retries.
+     */
+    static class RateLimitedException extends RuntimeException
+    {
+        private static final long serialVersionUID = 1L;
+
+        RateLimitedException(String url, int retries, Throwable cause)
+        {
+            super("issue tracker " + url + " has rejected the request as one too many, also after "
+                    + retries + " retries", cause);
+        }
+
+        RateLimitedException(String host, Duration pause)
+        {
+            super("issue tracker host " + host + " has asked to pause requests for another "
+                    + pause.toMillis() + "ms, beyond the time left for the request");
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package de.psi.pjf.hackcracker.jira;
+
+import de.psi.pjf.hackcracker.annotation.configuration.IssueTrackerConfiguration;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Command line entry point writing the {@link IssueSnapshot} for offline builds.
+ * It scans the given sources for {@code @FixForIssue} annotations and retrieves
+ * all referenced issues in one batched pass, with the same configuration the
+ * annotation processor uses. Entries of issues that cannot be retrieved now are
+ * kept from the previous snapshot. Usage:
+ * {@code java -cp <hack-cracker-annotation with dependencies> de.psi.pjf.hackcracker.jira.SnapshotGenerator <snapshot file> <source directory>...}
+ */
+public class SnapshotGenerator
+{
+    public static void main(String[] args)
+    {
+        if (args.length < 2)
+        {
+            System.err.println("usage: SnapshotGenerator <snapshot file> <source directory>...");
+            System.exit(2);
+        }
+        int exitCode;
+        try
+        {
+            exitCode = generate(Paths.get(args[0]),
+                    Arrays.stream(args, 1, args.length).map(Paths::get).collect(Collectors.toList()));
+        }
+        catch (IOException ex)
+        {
+            ex.printStackTrace();
+            exitCode = 2;
+        }
+        // connections of the issue tracker clients are not daemon threads
+        System.exit(exitCode);
+    }
+
+    /**
+     * @return 0 if all issues have been retrieved, 1 otherwise.
+     */
+    static int generate(Path snapshotFile, List<Path> sources) throws IOException
+    {
+        IssuePrefetcher.Result result = new IssuePrefetcher(IssueTrackerConfiguration.getConfiguration())
+                .prefetch(sources, snapshotFile);
+        System.out.println(result.getIssues() + " issues found in " + sources + ", "
+                + (result.getIssues() - result.getNotRetrieved().size()) + " retrieved, snapshot " + snapshotFile
+                + " holds " + result.getSnapshotSize() + " issues");
+        if (result.getNotRetrieved().isEmpty())
+        {
+            return 0;
+        }
+        System.err.println("could not retrieve " + result.getNotRetrieved().size() + " issues: " + result.getNotRetrieved());
+        result.getFallbackMessage().ifPresent(System.err::println);
+        return 1;
+    }
+}
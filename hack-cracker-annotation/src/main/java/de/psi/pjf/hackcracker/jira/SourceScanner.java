@@ -0,0 +1,345 @@
+package de.psi.pjf.hackcracker.jira;
+
+import de.psi.pjf.hackcracker.annotation.FixForIssue;
+import de.psi.pjf.hackcracker.annotation.FixForIssues;
+import de.psi.pjf.hackcracker.annotation.IgnoreIssueResolved;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Finds the elements annotated with {@link FixForIssue}, {@link FixForIssues} and
+ * {@link IgnoreIssueResolved} in java sources without compiling them. Source
+ * files are parsed in parallel on the common fork join pool. Only literal
+ * {@code url} and {@code issue} values are understood, annotations referring
+ * to constants for them are skipped.
+ */
+public final class SourceScanner
+{
+    private static final Pattern ANNOTATION = Pattern.compile(
+            "@(?:[\\w$]+\\s*\\.\\s*)*(?:FixForIssue|FixForIssues|IgnoreIssueResolved)\\s*\\(");
+    private static final Pattern ANNOTATION_NAME = Pattern.compile("@\\s*([\\w$]+(?:\\s*\\.\\s*[\\w$]+)*)");
+    private static final Pattern FIX_FOR_ISSUE = Pattern.compile("@(?:[\\w$]+\\s*\\.\\s*)*FixForIssue\\s*\\(");
+    private static final Pattern URL = Pattern.compile("\\burl\\s*=\\s*\"((?:[^\"\\\\]|\\\\.)*)\"");
+    private static final Pattern ISSUE = Pattern.compile("\\bissue\\s*=\\s*\"((?:[^\"\\\\]|\\\\.)*)\"");
+    private static final Pattern TRACKER_TYPE = Pattern.compile("\\btrackerType\\s*=\\s*(?:[\\w$]+\\s*\\.\\s*)*([\\w$]+)");
+    private static final Pattern CUSTOM_TRACKER_TYPE = Pattern.compile("\\bcustomTrackerType\\s*=\\s*\"((?:[^\"\\\\]|\\\\.)*)\"");
+    private static final Pattern NEEDS_ALL_ISSUES_RESOLVED = Pattern.compile("\\bneedsAllIssuesResolved\\s*=\\s*true\\b");
+
+    private SourceScanner()
+    {
+    }
+
+    /**
+     * @param roots source directories or single source files.
+     * @return issues referenced in all java sources below the roots.
+     */
+    public static Set<IssueKey> scan(Collection<Path> roots) throws IOException
+    {
+        Set<IssueKey> toReturn = new LinkedHashSet<>();
+        scanElements(roots).forEach(e -> toReturn.addAll(e.getIssues()));
+        return toReturn;
+    }
+
+    /**
+     * @param roots source directories or single source files.
+     * @return annotated elements of all java sources below the roots, in the
+     * order of the files and of appearance within the files.
+     */
+    public static List<AnnotatedElement> scanElements(Collection<Path> roots) throws IOException
+    {
+        List<Path> files = new ArrayList<>();
+        for (Path root : roots)
+        {
+            try (Stream<Path> found = Files.walk(root))
+            {
+                found.filter(f -> Files.isRegularFile(f) && f.getFileName().toString().endsWith(".java"))
+                        .forEach(files::add);
+            }
+        }
+        try
+        {
+            return ForkJoinPool.commonPool().invoke(new ScanTask(files));
+        }
+        catch (UncheckedIOException ex)
+        {
+            throw ex.getCause();
+        }
+    }
+
+    /**
+     * @param file the source has been read from.
+     * @param source content of a single java source.
+     * @return annotated elements of the source, in the order of appearance.
+     */
+    public static List<AnnotatedElement> scanElements(Path file, String source)
+    {
+        List<AnnotatedElement> toReturn = new ArrayList<>();
+        String code = stripComments(source);
+        Matcher annotation = ANNOTATION.matcher(code);
+        int position = 0;
+        int line = 1;
+        int lineCountedTo = 0;
+        while (position < code.length() && annotation.find(position))
+        {
+            // all annotations of the element up to its declaration
+            List<IssueKey> issues = new ArrayList<>();
+            boolean needsAllIssuesResolved = false;
+            boolean ignoreIssueResolved = false;
+            position = annotation.start();
+            Matcher name = ANNOTATION_NAME.matcher(code);
+            while (position < code.length() && code.charAt(position) == '@'
+                    && name.region(position, code.length()).lookingAt())
+            {
+                String simpleName = name.group(1).substring(name.group(1).lastIndexOf('.') + 1).trim();
+                if (simpleName.equals("interface"))
+                {
+                    break;
+                }
+                String arguments = "";
+                position = skipWhitespace(code, name.end());
+                if (position < code.length() && code.charAt(position) == '(')
+                {
+                    int end = findClosingParenthesis(code, position + 1);
+                    arguments = code.substring(position + 1, end);
+                    position = end + 1;
+                }
+                switch (simpleName)
+                {
+                    case "FixForIssue":
+                        parseIssue(arguments).ifPresent(issues::add);
+                        break;
+                    case "FixForIssues":
+                        Matcher inner = FIX_FOR_ISSUE.matcher(arguments);
+                        while (inner.find())
+                        {
+                            parseIssue(arguments.substring(inner.end(), findClosingParenthesis(arguments, inner.end())))
+                                    .ifPresent(issues::add);
+                        }
+                        needsAllIssuesResolved = NEEDS_ALL_ISSUES_RESOLVED.matcher(arguments).find();
+                        break;
+                    case "IgnoreIssueResolved":
+                        ignoreIssueResolved = true;
+                        break;
+                    default:
+                        // other annotations of the same element
+                }
+                position = skipWhitespace(code, position);
+            }
+            for (; lineCountedTo < position; lineCountedTo++)
+            {
+                if (code.charAt(lineCountedTo) == '\n')
+                {
+                    line++;
+                }
+            }
+            if (!issues.isEmpty() || ignoreIssueResolved)
+            {
+                toReturn.add(new AnnotatedElement(file, line, readDeclaration(code, position),
+                        issues, needsAllIssuesResolved, ignoreIssueResolved));
+            }
+        }
+        return toReturn;
+    }
+
+    private static Optional<IssueKey> parseIssue(String arguments)
+    {
+        Matcher url = URL.matcher(arguments);
+        Matcher issue = ISSUE.matcher(arguments);
+        Matcher trackerType = TRACKER_TYPE.matcher(arguments);
+        Matcher customTrackerType = CUSTOM_TRACKER_TYPE.matcher(arguments);
+        if (!url.find() || !issue.find())
+        {
+            return Optional.empty();
+        }
+        if (customTrackerType.find() && !customTrackerType.group(1).isEmpty())
+        {
+            return Optional.of(new IssueKey(unescape(url.group(1)), unescape(issue.group(1)),
+                    unescape(customTrackerType.group(1))));
+        }
+        return Optional.of(trackerType.find()
+                ? new IssueKey(unescape(url.group(1)), unescape(issue.group(1)), trackerType.group(1))
+                : new IssueKey(unescape(url.group(1)), unescape(issue.group(1))));
+    }
+
+    /**
+     * @return the declaration starting at the given index up to its body,
+     * initializer or the end of the line.
+     */
+    private static String readDeclaration(String code, int start)
+    {
+        int depth = 0;
+        int i = start;
+        while (i < code.length())
+        {
+            char c = code.charAt(i);
+            if (c == '{' || c == ';' || c == '=' || c == '\n' || (depth == 0 && (c == ',' || c == ')')))
+            {
+                break;
+            }
+            if (c == '"' || c == '\'')
+            {
+                i = skipLiteral(code, i);
+                continue;
+            }
+            depth += c == '(' ? 1 : c == ')' ? -1 : 0;
+            i++;
+        }
+        return code.substring(start, i).replaceAll("\\s+", " ").trim();
+    }
+
+    private static int skipWhitespace(String code, int start)
+    {
+        int i = start;
+        while (i < code.length() && Character.isWhitespace(code.charAt(i)))
+        {
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * Replaces comments with spaces, so commented out annotations are not found.
+     * Line breaks are kept, so lines of the declarations stay the same.
+     */
+    private static String stripComments(String source)
+    {
+        StringBuilder toReturn = new StringBuilder(source.length());
+        int i = 0;
+        while (i < source.length())
+        {
+            char c = source.charAt(i);
+            if (c == '"' || c == '\'')
+            {
+                int end = skipLiteral(source, i);
+                toReturn.append(source, i, end);
+                i = end;
+            }
+            else if (source.startsWith("//", i))
+            {
+                int end = source.indexOf('\n', i);
+                i = end < 0 ? source.length() : end;
+                toReturn.append(' ');
+            }
+            else if (source.startsWith("/*", i))
+            {
+                int end = source.indexOf("*/", i + 2);
+                end = end < 0 ? source.length() : end + 2;
+                toReturn.append(' ');
+                for (; i < end; i++)
+                {
+                    if (source.charAt(i) == '\n')
+                    {
+                        toReturn.append('\n');
+                    }
+                }
+            }
+            else
+            {
+                toReturn.append(c);
+                i++;
+            }
+        }
+        return toReturn.toString();
+    }
+
+    /**
+     * @return index after the literal starting at the given index.
+     */
+    private static int skipLiteral(String code, int start)
+    {
+        char quote = code.charAt(start);
+        int i = start + 1;
+        while (i < code.length() && code.charAt(i) != quote && code.charAt(i) != '\n')
+        {
+            i += code.charAt(i) == '\\' ? 2 : 1;
+        }
+        return Math.min(i + 1, code.length());
+    }
+
+    /**
+     * @return index of the parenthesis closing the one just before the given index.
+     */
+    private static int findClosingParenthesis(String code, int start)
+    {
+        int depth = 1;
+        int i = start;
+        while (i < code.length())
+        {
+            char c = code.charAt(i);
+            if (c == '"' || c == '\'')
+            {
+                i = skipLiteral(code, i);
+                continue;
+            }
+            if (c == '(')
+            {
+                depth++;
+            }
+            else if (c == ')' && --depth == 0)
+            {
+                return i;
+            }
+            i++;
+        }
+        return code.length();
+    }
+
+    private static String unescape(String literal)
+    {
+        return literal.replaceAll("\\\\(.)", "$1");
+    }
+
+    private static final class ScanTask extends RecursiveTask<List<AnnotatedElement>>
+    {
+        private static final long serialVersionUID = 1L;
+        private static final int FILES_PER_TASK = 32;
+
+        private final List<Path> files;
+
+        private ScanTask(List<Path> aFiles)
+        {
+            files = aFiles;
+        }
+
+        @Override
+        protected List<AnnotatedElement> compute()
+        {
+            if (files.size() > FILES_PER_TASK)
+            {
+                ScanTask first = new ScanTask(files.subList(0, files.size() / 2));
+                ScanTask second = new ScanTask(files.subList(files.size() / 2, files.size()));
+                first.fork();
+                List<AnnotatedElement> toReturn = new ArrayList<>(second.compute());
+                toReturn.addAll(0, first.join());
+                return toReturn;
+            }
+            List<AnnotatedElement> toReturn = new ArrayList<>();
+            for (Path file : files)
+            {
+                try
+                {
+                    toReturn.addAll(scanElements(file, new String(Files.readAllBytes(file), StandardCharsets.UTF_8)));
+                }
+                catch (IOException ex)
+                {
+                    throw new UncheckedIOException(ex);
+                }
+            }
+            return toReturn;
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package de.psi.pjf.hackcracker.tracker;
+
+import java.time.Duration;
+
+/**
+ * The part of an issue that is needed to decide if a hack can be removed,
+ * together with the time it has been retrieved from the issue tracker.
+ */
+public final class IssueStatus
+{
+    private final String resolution;
+    private final long fetchedAt;
+
+    public IssueStatus(String aResolution, long aFetchedAt)
+    {
+        resolution = aResolution;
+        fetchedAt = aFetchedAt;
+    }
+
+    /**
+     * @return name of the resolution or null if the issue is not resolved.
+     */
+    public String getResolution()
+    {
+        return resolution;
+    }
+
+    public long getFetchedAt()
+    {
+        return fetchedAt;
+    }
+
+    public boolean isExpired(Duration timeToLive, long now)
+    {
+        return now - fetchedAt >= timeToLive.toMillis();
+    }
+}
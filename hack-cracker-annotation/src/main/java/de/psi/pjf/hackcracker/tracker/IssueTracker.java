@@ -0,0 +1,118 @@
+package de.psi.pjf.hackcracker.tracker;
+
+import de.psi.pjf.hackcracker.annotation.FixForIssue.IssueTrackerType;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Backend of one {@link IssueTrackerType} or custom tracker type, found with the {@link java.util.ServiceLoader}
+ * in {@code META-INF/services/de.psi.pjf.hackcracker.tracker.IssueTracker}. A backend
+ * only talks to its issue tracker - the issue status cache, the offline snapshot, the
+ * daemon, the time budget, circuit breakers, limits of concurrent requests, request
+ * timeouts and metrics are the same for all backends and applied around them. Issues
+ * are always passed in batches of at most {@link #getMaxIssuesPerLookup()}, nothing
+ * may block.
+ */
+public interface IssueTracker
+{
+    /**
+     * @return name of the {@link IssueTrackerType} served by this backend, or for other issue trackers
+     * the custom tracker type that annotations select it with.
+     * @see de.psi.pjf.hackcracker.annotation.FixForIssue#customTrackerType()
+     */
+    String getType();
+
+    /**
+     * @return maximal number of issues passed to a single {@link #lookup}.
+     */
+    default int getMaxIssuesPerLookup()
+    {
+        return 50;
+    }
+
+    /**
+     * Starts retrieving the given issues of one issue tracker instance with as few
+     * requests as possible, all of them sent through {@link TrackerSession#send}.
+     * @param url issue tracker instance as given in the annotation.
+     * @param issues keys of the issues, in canonical upper case.
+     * @param session compilation the issues are retrieved for.
+     * @return a future per issue key, completed with the status of the issue, empty
+     * if the issue tracker does not know it or exceptionally if it could not be retrieved.
+     * Keys missing in the map are unknown to the issue tracker as well.
+     */
+    Map<String, CompletableFuture<Optional<IssueStatus>>> lookup(String url, List<String> issues, TrackerSession session);
+
+    /**
+     * Refreshes statuses whose time to live in the cache is over. Backends that can
+     * ask their issue tracker only for the issues changed since they were retrieved
+     * should do so, issues that have not changed get their known resolution with a
+     * new retrieval time. By default the issues are simply looked up again.
+     * @param url issue tracker instance as given in the annotation.
+     * @param known last retrieved status by issue key, in canonical upper case.
+     * @param session compilation the issues are retrieved for.
+     * @return a future per issue key, like {@link #lookup}.
+     */
+    default Map<String, CompletableFuture<Optional<IssueStatus>>> revalidate(String url, Map<String, IssueStatus> known,
+                                                                             TrackerSession session)
+    {
+        return lookup(url, new ArrayList<>(known.keySet()), session);
+    }
+
+    /**
+     * @param url issue tracker instance as given in the annotation.
+     * @param issue key of the issue, in canonical upper case.
+     * @param session compilation the issue is described for.
+     * @return details of the issue for the verbose output, empty if there is
+     * nothing to tell beyond its status.
+     */
+    default CompletableFuture<Optional<String>> describe(String url, String issue, TrackerSession session)
+    {
+        return CompletableFuture.completedFuture(Optional.empty());
+    }
+
+    /**
+     * @param url issue tracker instance as given in the annotation.
+     * @param issue key of the issue as given in the annotation.
+     * @return url of the issue for people.
+     */
+    default String constructBrowseUrl(String url, String issue)
+    {
+        return url + issue;
+    }
+
+    /**
+     * @param failure failure of a request sent by this backend.
+     * @return true if the issue tracker has not answered at all or failed itself,
+     * which opens its circuit breaker eventually, false for answers like bad request
+     * or issue not found.
+     */
+    default boolean isConnectionFailure(Throwable failure)
+    {
+        return true;
+    }
+
+    /**
+     * @param failure failure of a request sent by this backend.
+     * @return true if the issue tracker has rejected the request because it gets
+     * too many, in which case requests to it are slowed down and the request is
+     * sent again later.
+     */
+    default boolean isRateLimited(Throwable failure)
+    {
+        return false;
+    }
+
+    /**
+     * @param failure failure for which {@link #isRateLimited(Throwable)} is true.
+     * @return how long the issue tracker asks to wait before the next request, empty
+     * if it does not tell.
+     */
+    default Optional<Duration> getRetryAfter(Throwable failure)
+    {
+        return Optional.empty();
+    }
+}
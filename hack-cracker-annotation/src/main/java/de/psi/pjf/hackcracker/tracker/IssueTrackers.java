@@ -0,0 +1,53 @@
+package de.psi.pjf.hackcracker.tracker;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.ServiceLoader;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * All {@link IssueTracker} backends on the class path of the annotation processor,
+ * by their type. The first backend found for a type wins.
+ */
+public final class IssueTrackers
+{
+    private static final Logger LOGGER = Logger.getLogger(IssueTrackers.class.getName());
+
+    private static Map<String, IssueTracker> trackers;
+
+    private IssueTrackers()
+    {
+    }
+
+    /**
+     * @param type name of the {@link de.psi.pjf.hackcracker.annotation.FixForIssue.IssueTrackerType} or
+     * custom tracker type.
+     * @return the backend of the type, if there is one.
+     */
+    public static Optional<IssueTracker> get(String type)
+    {
+        return Optional.ofNullable(getTrackers().get(type));
+    }
+
+    private static synchronized Map<String, IssueTracker> getTrackers()
+    {
+        if (trackers == null)
+        {
+            Map<String, IssueTracker> found = new HashMap<>();
+            // the context class loader of a compiler does not see the processor path
+            for (IssueTracker tracker : ServiceLoader.load(IssueTracker.class, IssueTracker.class.getClassLoader()))
+            {
+                if (found.putIfAbsent(tracker.getType(), tracker) != null)
+                {
+                    LOGGER.log(Level.WARNING, "there is more than one issue tracker backend of type {0}, {1} is ignored",
+                            new Object[]{tracker.getType(), tracker.getClass().getName()});
+                }
+            }
+            trackers = Collections.unmodifiableMap(found);
+        }
+        return trackers;
+    }
+}
@@ -0,0 +1,33 @@
+package de.psi.pjf.hackcracker.tracker;
+
+import de.psi.pjf.hackcracker.annotation.configuration.IssueTrackerConfiguration;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * What an {@link IssueTracker} gets from the compilation it retrieves issues for.
+ */
+public interface TrackerSession
+{
+    IssueTrackerConfiguration getConfiguration();
+
+    /**
+     * Sends a request unless the circuit breaker of the issue tracker is open. The
+     * request waits while too many requests to the same host are in flight or have
+     * just been started, fails after the request timeout and is recorded in the
+     * metrics. Requests the issue tracker rejects as too many, as told by
+     * {@link IssueTracker#isRateLimited(Throwable)}, are sent again later.
+     * @param url issue tracker instance the request is sent to.
+     * @param request starts the request and returns its future.
+     * @return future completed with the result of the request.
+     */
+    <T> CompletableFuture<T> send(String url, Supplier<CompletableFuture<T>> request);
+
+    /**
+     * @param name name of the resource, unique among all backends.
+     * @param create creates the resource on first use.
+     * @return the resource of this compilation, closed when the compilation ends
+     * if it is {@link AutoCloseable}.
+     */
+    <T> T getResource(String name, Supplier<T> create);
+}
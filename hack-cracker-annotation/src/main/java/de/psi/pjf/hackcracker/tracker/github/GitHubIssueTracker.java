@@ -0,0 +1,456 @@
+package de.psi.pjf.hackcracker.tracker.github;
+
+import de.psi.pjf.hackcracker.annotation.FixForIssue.IssueTrackerType;
+import de.psi.pjf.hackcracker.annotation.configuration.IssueTrackerConfiguration.JiraInstance;
+import de.psi.pjf.hackcracker.tracker.IssueStatus;
+import de.psi.pjf.hackcracker.tracker.IssueTracker;
+import de.psi.pjf.hackcracker.tracker.TrackerSession;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeoutException;
+import org.codehaus.jettison.json.JSONArray;
+import org.codehaus.jettison.json.JSONException;
+import org.codehaus.jettison.json.JSONObject;
+
+/**
+ * Backend of GitHub and GitHub Enterprise. The url of an issue is the url of its
+ * repository, like {@code https://github.com/owner/repository/}, the issue is its
+ * number. All issues of a lookup are retrieved with a single GraphQL query. Closed
+ * issues have resolution {@code Fixed}, {@code Won't Fix} if they are closed as
+ * not planned and {@code Duplicate} if they are closed as duplicates. Issues and
+ * repositories GitHub does not find do not exist. The access token is the password
+ * of a {@code <github>} instance in the configuration with the url of the repository.
+ * The GraphQL API of GitHub answers requests without token with unauthorized, so a
+ * token is needed for public repositories as well; reading issues is all it must allow.
+ */
+public class GitHubIssueTracker implements IssueTracker
+{
+    private static final String PUBLIC_HOST = "github.com";
+    private static final String PUBLIC_API = "https://api.github.com/graphql";
+    private static final String ENTERPRISE_API = "/api/graphql";
+    private static final String RETRIEVED_ISSUES = GitHubIssueTracker.class.getName() + ".issues";
+    private static final int TOO_MANY_REQUESTS = 429;
+    private static final String NOT_FOUND = "NOT_FOUND";
+    private static final String RATE_LIMITED = "RATE_LIMITED";
+
+    /**
+     * Runs the blocking http requests, how many of them run at the same time is
+     * limited by the caller anyway.
+     */
+    private static final ExecutorService REQUESTS = Executors.newCachedThreadPool(r -> {
+        Thread thread = new Thread(r, "hackcracker-github");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @Override
+    public String getType()
+    {
+        return IssueTrackerType.GITHUB.name();
+    }
+
+    @Override
+    public int getMaxIssuesPerLookup()
+    {
+        return 100;
+    }
+
+    @Override
+    public Map<String, CompletableFuture<Optional<IssueStatus>>> lookup(String url, List<String> issues,
+                                                                        TrackerSession session)
+    {
+        Map<String, CompletableFuture<Optional<IssueStatus>>> toReturn = new LinkedHashMap<>();
+        StringBuilder query = new StringBuilder();
+        for (String issue : issues)
+        {
+            CompletableFuture<Optional<IssueStatus>> status = new CompletableFuture<>();
+            toReturn.put(issue, status);
+            if (issue.matches("0*[1-9][0-9]{0,8}"))
+            {
+                // GraphQL does not allow leading zeros in numbers
+                query.append(" i").append(issue).append(": issue(number: ").append(Integer.parseInt(issue))
+                        .append(") { state stateReason title }");
+            }
+            else
+            {
+                // there is no such issue on GitHub
+                status.complete(Optional.empty());
+            }
+        }
+        if (query.length() == 0)
+        {
+            return toReturn;
+        }
+        Repository repository;
+        try
+        {
+            repository = Repository.of(url);
+        }
+        catch (IllegalArgumentException ex)
+        {
+            toReturn.values().forEach(status -> status.completeExceptionally(ex));
+            return toReturn;
+        }
+        String graphQl = "query { repository(owner: " + quote(repository.owner) + ", name: " + quote(repository.name)
+                + ") {" + query + " } }";
+        JiraInstance instance = session.getConfiguration().getInstance("github", url);
+        int timeoutMillis = (int) session.getConfiguration().getRequestTimeout().toMillis();
+        session.send(url, () -> CompletableFuture.supplyAsync(() -> post(repository.api, graphQl,
+                        instance == null ? null : instance.getPassword(), timeoutMillis), REQUESTS))
+                .whenComplete((response, failure) -> {
+                    if (failure != null)
+                    {
+                        toReturn.values().forEach(status -> status.completeExceptionally(failure));
+                        return;
+                    }
+                    try
+                    {
+                        JSONObject found = response.optJSONObject("data") == null
+                                ? null : response.getJSONObject("data").optJSONObject("repository");
+                        if (found == null && response.has("errors") && !isNotFound(response.getJSONArray("errors")))
+                        {
+                            throw new JSONException("GitHub has answered with errors: " + response.get("errors"));
+                        }
+                        Map<String, String> titles = getRetrievedIssues(session);
+                        toReturn.forEach((issue, status) -> {
+                            JSONObject retrieved = found == null ? null : found.optJSONObject("i" + issue);
+                            if (retrieved == null)
+                            {
+                                // a repository or issue that does not exist
+                                status.complete(Optional.empty());
+                                return;
+                            }
+                            titles.put(url + "#" + issue, retrieved.optString("title"));
+                            status.complete(Optional.of(new IssueStatus(
+                                    resolutionOf(retrieved.optString("state"), retrieved.optString("stateReason")),
+                                    System.currentTimeMillis())));
+                        });
+                    }
+                    catch (JSONException ex)
+                    {
+                        toReturn.values().forEach(status -> status.completeExceptionally(ex));
+                    }
+                });
+        return toReturn;
+    }
+
+    @Override
+    public CompletableFuture<Optional<String>> describe(String url, String issue, TrackerSession session)
+    {
+        String title = getRetrievedIssues(session).get(url + "#" + issue);
+        return CompletableFuture.completedFuture(title == null
+                ? Optional.empty()
+                : Optional.of("Issue: #" + issue + " retrieved successfully \n" + "summary: " + title + "\n"));
+    }
+
+    @Override
+    public String constructBrowseUrl(String url, String issue)
+    {
+        return (url.endsWith("/") ? url : url + "/") + "issues/" + issue;
+    }
+
+    /**
+     * Only failures to reach GitHub and failures of GitHub itself, answers to a
+     * wrong repository or query do not stop calling GitHub for everyone else.
+     */
+    @Override
+    public boolean isConnectionFailure(Throwable failure)
+    {
+        return failure instanceof IOException || failure instanceof UncheckedIOException
+                || failure instanceof TimeoutException
+                || failure instanceof UnexpectedResponseException
+                && ((UnexpectedResponseException) failure).getStatusCode() >= 500;
+    }
+
+    /**
+     * GitHub answers requests above its secondary rate limits with too many requests
+     * or with forbidden, telling when to come back, and requests above the primary
+     * rate limit of the GraphQL API with ok and a rate limited error.
+     */
+    @Override
+    public boolean isRateLimited(Throwable failure)
+    {
+        if (!(failure instanceof UnexpectedResponseException))
+        {
+            return false;
+        }
+        UnexpectedResponseException ex = (UnexpectedResponseException) failure;
+        return ex.isRateLimited() || ex.getStatusCode() == TOO_MANY_REQUESTS
+                || ex.getStatusCode() == HttpURLConnection.HTTP_FORBIDDEN && ex.getRetryAfter().isPresent();
+    }
+
+    @Override
+    public Optional<Duration> getRetryAfter(Throwable failure)
+    {
+        return failure instanceof UnexpectedResponseException
+                ? ((UnexpectedResponseException) failure).getRetryAfter()
+                : Optional.empty();
+    }
+
+    /**
+     * Titles of the issues retrieved in the compilation, for the verbose output.
+     */
+    private static Map<String, String> getRetrievedIssues(TrackerSession session)
+    {
+        return session.getResource(RETRIEVED_ISSUES, ConcurrentHashMap::new);
+    }
+
+    /**
+     * @return true if all errors are about a repository or issue that does not exist.
+     */
+    private static boolean isNotFound(JSONArray errors)
+    {
+        for (int i = 0; i < errors.length(); i++)
+        {
+            JSONObject error = errors.optJSONObject(i);
+            if (error == null || !NOT_FOUND.equals(error.optString("type")))
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return true if one of the errors, if there are any, is about the rate limit.
+     */
+    private static boolean isRateLimited(JSONArray errors)
+    {
+        for (int i = 0; errors != null && i < errors.length(); i++)
+        {
+            JSONObject error = errors.optJSONObject(i);
+            if (error != null && RATE_LIMITED.equals(error.optString("type")))
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String resolutionOf(String state, String stateReason)
+    {
+        if (!"CLOSED".equals(state))
+        {
+            return null;
+        }
+        switch (stateReason)
+        {
+            case "NOT_PLANNED": return "Won't Fix";
+            case "DUPLICATE": return "Duplicate";
+            default: return "Fixed";
+        }
+    }
+
+    private static JSONObject post(String api, String graphQl, String token, int timeoutMillis)
+    {
+        try
+        {
+            HttpURLConnection connection = (HttpURLConnection) new URL(api).openConnection();
+            connection.setConnectTimeout(timeoutMillis);
+            connection.setReadTimeout(timeoutMillis);
+            connection.setRequestMethod("POST");
+            connection.setDoOutput(true);
+            connection.setRequestProperty("Content-Type", "application/json");
+            connection.setRequestProperty("Accept", "application/json");
+            if (token != null)
+            {
+                connection.setRequestProperty("Authorization", "bearer " + token);
+            }
+            try (OutputStream out = connection.getOutputStream())
+            {
+                out.write(new JSONObject().put("query", graphQl).toString().getBytes(StandardCharsets.UTF_8));
+            }
+            int statusCode = connection.getResponseCode();
+            if (statusCode != HttpURLConnection.HTTP_OK)
+            {
+                read(connection.getErrorStream());
+                throw new UnexpectedResponseException(api, statusCode, retryAfter(connection));
+            }
+            JSONObject toReturn = new JSONObject(read(connection.getInputStream()));
+            if (isRateLimited(toReturn.optJSONArray("errors")))
+            {
+                throw UnexpectedResponseException.rateLimited(api, retryAfter(connection));
+            }
+            return toReturn;
+        }
+        catch (IOException ex)
+        {
+            throw new UncheckedIOException(ex);
+        }
+        catch (JSONException ex)
+        {
+            throw new IllegalStateException("GitHub has answered with invalid json", ex);
+        }
+    }
+
+    /**
+     * @return the time to wait from {@code Retry-After}, in seconds or as date, or
+     * until the rate limit is reset, null if the answer does not tell.
+     */
+    private static Duration retryAfter(HttpURLConnection connection)
+    {
+        String retryAfter = connection.getHeaderField("Retry-After");
+        String remaining = connection.getHeaderField("x-ratelimit-remaining");
+        String reset = connection.getHeaderField("x-ratelimit-reset");
+        try
+        {
+            if (retryAfter != null && retryAfter.trim().matches("[0-9]+"))
+            {
+                return Duration.ofSeconds(Long.parseLong(retryAfter.trim()));
+            }
+            if (retryAfter != null)
+            {
+                return positive(Duration.between(Instant.now(),
+                        ZonedDateTime.parse(retryAfter.trim(), DateTimeFormatter.RFC_1123_DATE_TIME)));
+            }
+            if ("0".equals(remaining) && reset != null)
+            {
+                return positive(Duration.between(Instant.now(), Instant.ofEpochSecond(Long.parseLong(reset.trim()))));
+            }
+        }
+        catch (DateTimeParseException | NumberFormatException ex)
+        {
+            // the request is sent again after a backoff
+        }
+        return null;
+    }
+
+    private static Duration positive(Duration duration)
+    {
+        return duration.isNegative() ? Duration.ZERO : duration;
+    }
+
+    /**
+     * Reads the whole response, so the connection can be kept alive.
+     */
+    private static String read(InputStream in) throws IOException
+    {
+        if (in == null)
+        {
+            return "";
+        }
+        try (InputStream body = in)
+        {
+            ByteArrayOutputStream content = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            for (int read = body.read(buffer); read >= 0; read = body.read(buffer))
+            {
+                content.write(buffer, 0, read);
+            }
+            return new String(content.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private static String quote(String value)
+    {
+        return "\"" + value.replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+    }
+
+    /**
+     * GitHub has answered with another status than ok, or with ok and a rate limited error.
+     */
+    public static class UnexpectedResponseException extends RuntimeException
+    {
+        private final int statusCode;
+        private final Duration retryAfter;
+        private final boolean rateLimited;
+
+        public UnexpectedResponseException(String api, int aStatusCode)
+        {
+            this(api, aStatusCode, null);
+        }
+
+        /**
+         * @param aRetryAfter time GitHub asks to wait before the next request, null if it does not tell.
+         */
+        public UnexpectedResponseException(String api, int aStatusCode, Duration aRetryAfter)
+        {
+            this(api + " has answered with status " + aStatusCode + (aStatusCode == HttpURLConnection.HTTP_UNAUTHORIZED
+                    ? ", an access token is needed as password of a <github> instance in the issue trackers configuration"
+                    : ""), aStatusCode, aRetryAfter, false);
+        }
+
+        private UnexpectedResponseException(String message, int aStatusCode, Duration aRetryAfter, boolean aRateLimited)
+        {
+            super(message);
+            statusCode = aStatusCode;
+            retryAfter = aRetryAfter;
+            rateLimited = aRateLimited;
+        }
+
+        /**
+         * @param retryAfter time until the rate limit is reset, null if GitHub does not tell.
+         */
+        public static UnexpectedResponseException rateLimited(String api, Duration retryAfter)
+        {
+            return new UnexpectedResponseException(api + " has answered that the rate limit is exceeded",
+                    HttpURLConnection.HTTP_OK, retryAfter, true);
+        }
+
+        public int getStatusCode()
+        {
+            return statusCode;
+        }
+
+        /**
+         * @return true if GitHub has answered with ok, but has not run the query as the rate limit is exceeded.
+         */
+        public boolean isRateLimited()
+        {
+            return rateLimited;
+        }
+
+        public Optional<Duration> getRetryAfter()
+        {
+            return Optional.ofNullable(retryAfter);
+        }
+    }
+
+    private static class Repository
+    {
+        private final String api;
+        private final String owner;
+        private final String name;
+
+        private Repository(String aApi, String aOwner, String aName)
+        {
+            api = aApi;
+            owner = aOwner;
+            name = aName;
+        }
+
+        private static Repository of(String url)
+        {
+            URI uri = URI.create(url);
+            String[] path = uri.getPath() == null ? new String[0] : uri.getPath().replaceAll("^/+|/+$", "").split("/+");
+            if (uri.getHost() == null || path.length != 2)
+            {
+                throw new IllegalArgumentException("not the url of a GitHub repository: " + url);
+            }
+            String api = PUBLIC_HOST.equalsIgnoreCase(uri.getHost())
+                    ? PUBLIC_API
+                    : uri.getScheme() + "://" + uri.getRawAuthority() + ENTERPRISE_API;
+            return new Repository(api, path[0], path[1].replaceAll("\\.git$", ""));
+        }
+    }
+}
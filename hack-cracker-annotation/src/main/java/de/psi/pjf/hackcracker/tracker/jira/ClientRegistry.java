@@ -0,0 +1,171 @@
+package de.psi.pjf.hackcracker.tracker.jira;
+
+import com.atlassian.jira.rest.client.api.JiraRestClient;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Jira clients shared by all compilations running in the JVM, one per issue
+ * tracker instance, so the keep-alive connections of a client are reused by
+ * everyone calling the same issue tracker. Compilations register while they
+ * run and lease the clients they use. A client nobody has leased for the idle
+ * timeout is closed, the least recently used clients nobody leases are closed
+ * when there are more than the maximal number of clients, and all clients are
+ * closed as soon as no compilation is registered anymore - so long living
+ * build daemons keep neither threads nor sockets between builds.
+ */
+class ClientRegistry
+{
+    private static final Logger LOGGER = Logger.getLogger(ClientRegistry.class.getName());
+    private static final ScheduledExecutorService TIMER = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "hackcracker-idle-clients");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Clients by url, in the order of their last use.
+     */
+    private final Map<String, Entry> clients = new LinkedHashMap<>(16, 0.75f, true);
+    private int registered;
+    private ScheduledFuture<?> idleCheck;
+
+    interface Connector
+    {
+        JiraRestClient connect(String url) throws URISyntaxException;
+    }
+
+    /**
+     * @param idleTimeout time after which a client nobody leases is closed.
+     */
+    synchronized void register(Duration idleTimeout)
+    {
+        if (registered++ == 0)
+        {
+            long period = Math.max(1, idleTimeout.toMillis() / 2);
+            idleCheck = TIMER.scheduleWithFixedDelay(() -> closeIdle(idleTimeout), period, period, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Closes all clients if nobody else is registered anymore.
+     */
+    void unregister()
+    {
+        List<Entry> toClose = new ArrayList<>();
+        synchronized (this)
+        {
+            if (--registered > 0)
+            {
+                return;
+            }
+            idleCheck.cancel(false);
+            idleCheck = null;
+            toClose.addAll(clients.values());
+            clients.clear();
+        }
+        toClose.forEach(Entry::close);
+    }
+
+    /**
+     * @param url issue tracker instance.
+     * @param maxClients maximal number of clients kept open.
+     * @param connector creates the client if there is none yet.
+     * @return the client of the issue tracker, to be released after use.
+     */
+    JiraRestClient lease(String url, int maxClients, Connector connector) throws URISyntaxException
+    {
+        List<Entry> toClose = new ArrayList<>();
+        JiraRestClient toReturn;
+        synchronized (this)
+        {
+            Entry entry = clients.get(url);
+            if (entry == null)
+            {
+                entry = new Entry(url, connector.connect(url));
+                clients.put(url, entry);
+                Iterator<Entry> leastRecentlyUsed = clients.values().iterator();
+                while (clients.size() > maxClients && leastRecentlyUsed.hasNext())
+                {
+                    Entry candidate = leastRecentlyUsed.next();
+                    if (candidate.leases == 0)
+                    {
+                        leastRecentlyUsed.remove();
+                        toClose.add(candidate);
+                    }
+                }
+            }
+            entry.leases++;
+            toReturn = entry.client;
+        }
+        toClose.forEach(Entry::close);
+        return toReturn;
+    }
+
+    synchronized void release(String url)
+    {
+        Entry entry = clients.get(url);
+        if (entry != null && --entry.leases == 0)
+        {
+            entry.releasedAt = System.currentTimeMillis();
+        }
+    }
+
+    private void closeIdle(Duration idleTimeout)
+    {
+        List<Entry> toClose = new ArrayList<>();
+        synchronized (this)
+        {
+            long idleSince = System.currentTimeMillis() - idleTimeout.toMillis();
+            Iterator<Entry> entries = clients.values().iterator();
+            while (entries.hasNext())
+            {
+                Entry entry = entries.next();
+                if (entry.leases == 0 && entry.releasedAt <= idleSince)
+                {
+                    entries.remove();
+                    toClose.add(entry);
+                }
+            }
+        }
+        toClose.forEach(Entry::close);
+    }
+
+    private static class Entry
+    {
+        private final String url;
+        private final JiraRestClient client;
+        private int leases;
+        private long releasedAt = System.currentTimeMillis();
+
+        private Entry(String aUrl, JiraRestClient aClient)
+        {
+            url = aUrl;
+            client = aClient;
+        }
+
+        private void close()
+        {
+            try
+            {
+                client.close();
+            }
+            catch (IOException | RuntimeException ex)
+            {
+                LOGGER.log(Level.WARNING, "there was an exception when closing the client of " + url, ex);
+            }
+        }
+    }
+}
@@ -0,0 +1,599 @@
+package de.psi.pjf.hackcracker.tracker.jira;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import com.atlassian.jira.rest.client.api.JiraRestClient;
+import com.atlassian.jira.rest.client.api.JiraRestClientFactory;
+import com.atlassian.jira.rest.client.api.RestClientException;
+import com.atlassian.jira.rest.client.api.domain.Comment;
+import com.atlassian.jira.rest.client.api.domain.Issue;
+import com.atlassian.jira.rest.client.auth.AnonymousAuthenticationHandler;
+import com.atlassian.jira.rest.client.internal.async.AsynchronousJiraRestClientFactory;
+import com.atlassian.util.concurrent.Promise;
+import com.google.common.util.concurrent.FutureCallback;
+import de.psi.pjf.hackcracker.annotation.FixForIssue.IssueTrackerType;
+import de.psi.pjf.hackcracker.annotation.configuration.IssueTrackerConfiguration;
+import de.psi.pjf.hackcracker.annotation.configuration.IssueTrackerConfiguration.JiraInstance;
+import de.psi.pjf.hackcracker.jira.IssueKey;
+import de.psi.pjf.hackcracker.jira.MessageBuilder;
+import de.psi.pjf.hackcracker.tracker.IssueStatus;
+import de.psi.pjf.hackcracker.tracker.IssueTracker;
+import de.psi.pjf.hackcracker.tracker.TrackerSession;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Backend of atlassian jira. Issues are retrieved with {@code key in (...)}
+ * searches restricted to resolved issues, issues a search does not return are
+ * unresolved, unless jira has rejected the search or returned moved issues, in
+ * which case they are retrieved one by one. Expired
+ * statuses are revalidated with a search for the issues updated since. Searches
+ * return only the fields needed for the status, unless the verbose output needs
+ * whole issues. Clients
+ * are shared by all compilations in the JVM through the {@link ClientRegistry}.
+ */
+public class JiraIssueTracker implements IssueTracker
+{
+    private static final ClientRegistry CLIENTS = new ClientRegistry();
+    private static final JiraRestClientFactory FACTORY = new AsynchronousJiraRestClientFactory();
+
+    private static final int SEARCH_PAGE_SIZE = 100;
+    private static final int KEYS_PER_SEARCH = 50;
+    private static final long REVALIDATION_MARGIN_MINUTES = 5;
+    private static final int TOO_MANY_REQUESTS = 429;
+
+    /**
+     * Fields needed for the resolution check, the client cannot parse issues
+     * without all but the resolution anyway.
+     */
+    private static final Set<String> STATUS_FIELDS = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+            "resolution", "status", "summary", "issuetype", "created", "updated", "project")));
+    private static final Set<String> ALL_FIELDS = Collections.singleton("*all");
+
+    /**
+     * Loggers of the client that warn about its own setup, nothing the user
+     * of a compiler could do anything about.
+     */
+    private static final String[] NOISY_LOGGERS = {
+        "com.atlassian.jira.rest.client.internal.async.AsynchronousHttpClientFactory$MavenUtils",
+        "com.atlassian.httpclient.apache.httpcomponents.cache.FlushableHttpCacheStorageImpl"};
+    private static volatile boolean loggersQuiet;
+
+    /**
+     * Resolution queries jira has rejected by url, jira does not know one of their
+     * resolutions, so all issues are searched for instead.
+     */
+    private static final Map<String, String> REJECTED_RESOLUTION_QUERIES = new ConcurrentHashMap<>();
+
+    private static final String LEASED_CLIENTS = JiraIssueTracker.class.getName() + ".clients";
+    private static final String RETRIEVED_ISSUES = JiraIssueTracker.class.getName() + ".issues";
+
+    @Override
+    public String getType()
+    {
+        return IssueTrackerType.JIRA.name();
+    }
+
+    @Override
+    public int getMaxIssuesPerLookup()
+    {
+        return KEYS_PER_SEARCH;
+    }
+
+    /**
+     * Searches only for the issues with one of the resolutions of resolved issues,
+     * so the issues still open, usually most of them, are not transferred at all.
+     * The verbose output describes open issues as well, so it searches for all, as
+     * it does if jira has rejected the resolutions before.
+     */
+    @Override
+    public Map<String, CompletableFuture<Optional<IssueStatus>>> lookup(String url, List<String> issues,
+                                                                        TrackerSession session)
+    {
+        Set<String> resolved = session.getConfiguration().getResolvedResolutions();
+        String resolutionQuery = constructResolutionQuery(resolved);
+        return resolved.isEmpty() || session.getConfiguration().isVerbose()
+                || resolutionQuery.equals(REJECTED_RESOLUTION_QUERIES.get(url))
+                ? retrieve(url, issues, constructKeyQuery(issues), Collections.emptyMap(), null, session)
+                : retrieve(url, issues, constructKeyQuery(issues) + " AND " + resolutionQuery,
+                        Collections.emptyMap(), resolutionQuery, session);
+    }
+
+    /**
+     * Searches only for the issues updated since the oldest of them has been
+     * retrieved, which usually finds none and answers with an empty page. The
+     * search is not restricted to resolved issues, as issues updated to be open
+     * again must not be taken for unchanged.
+     */
+    @Override
+    public Map<String, CompletableFuture<Optional<IssueStatus>>> revalidate(String url, Map<String, IssueStatus> known,
+                                                                             TrackerSession session)
+    {
+        long oldest = known.values().stream().mapToLong(IssueStatus::getFetchedAt).min().orElse(0);
+        // relative dates are independent of the time zone of the jira user,
+        // the margin covers clocks of jira and this machine being apart
+        long minutes = TimeUnit.MILLISECONDS.toMinutes(Math.max(0, System.currentTimeMillis() - oldest))
+                + REVALIDATION_MARGIN_MINUTES;
+        return retrieve(url, known.keySet(),
+                constructKeyQuery(known.keySet()) + " AND updated >= \"-" + minutes + "m\"", known, null, session);
+    }
+
+    /**
+     * @param known statuses of issues that are still the same if the search does not return them.
+     * @param resolutionQuery restriction of the search to resolved issues, null if it returns all.
+     */
+    private Map<String, CompletableFuture<Optional<IssueStatus>>> retrieve(String url, Collection<String> issues,
+                                                                           String jql, Map<String, IssueStatus> known,
+                                                                           String resolutionQuery, TrackerSession session)
+    {
+        Map<String, CompletableFuture<Optional<IssueStatus>>> toReturn = new LinkedHashMap<>();
+        issues.forEach(issue -> toReturn.put(issue, new CompletableFuture<>()));
+        JiraRestClient client;
+        try
+        {
+            client = getClient(url, session);
+        }
+        catch (URISyntaxException | RuntimeException ex)
+        {
+            toReturn.values().forEach(status -> status.completeExceptionally(ex));
+            return toReturn;
+        }
+        search(client, url, jql, known, resolutionQuery, false, toReturn, session);
+        return toReturn;
+    }
+
+    /**
+     * @param unrestricted true if the search is the one without resolutions after
+     * jira has rejected the search restricted to them.
+     */
+    private CompletableFuture<Void> search(JiraRestClient client, String url, String jql, Map<String, IssueStatus> known,
+                                           String resolutionQuery, boolean unrestricted,
+                                           Map<String, CompletableFuture<Optional<IssueStatus>>> pending,
+                                           TrackerSession session)
+    {
+        boolean resolvedOnly = resolutionQuery != null && !unrestricted;
+        long searchedAt = System.currentTimeMillis();
+        AtomicInteger unasked = new AtomicInteger();
+        return searchIssues(client, url, jql, 0, pending, unasked, session)
+                .handle((ignored, failure) -> failure == null ? null : unwrap(failure))
+                .thenCompose(failure -> {
+                    if (failure != null && !isBadRequest(failure))
+                    {
+                        pending.values().forEach(status -> status.completeExceptionally(failure));
+                        return CompletableFuture.completedFuture(null);
+                    }
+                    if (failure != null && resolvedOnly)
+                    {
+                        // jira rejects resolutions it does not know like keys that do not exist
+                        return search(client, url, constructKeyQuery(pending.keySet()), known, resolutionQuery, true,
+                                pending, session);
+                    }
+                    if (failure == null && unrestricted)
+                    {
+                        // the keys exist, so it was the resolutions jira has rejected
+                        REJECTED_RESOLUTION_QUERIES.put(url, resolutionQuery);
+                    }
+                    if (failure == null && unasked.get() == 0)
+                    {
+                        // an issue moved to another key is returned under that key only,
+                        // so the statuses not returned are still the same only if every key returned
+                        // was asked for, otherwise they are retrieved one by one
+                        known.forEach((issue, status) -> pending.get(issue).complete(
+                                Optional.of(new IssueStatus(status.getResolution(), searchedAt))));
+                    }
+                    if (failure == null && resolvedOnly && unasked.get() == 0)
+                    {
+                        // all keys exist, as jira has accepted the query, the ones
+                        // not returned belong to issues that are not resolved
+                        pending.values().forEach(status -> status.complete(Optional.of(new IssueStatus(null, searchedAt))));
+                    }
+                    // jira rejects the whole query if only one of the keys does not exist,
+                    // keys missing in the search result were either moved to another key
+                    // or do not exist, all such keys are retrieved one by one
+                    return CompletableFuture.allOf(pending.entrySet().stream()
+                            .filter(e -> !e.getValue().isDone())
+                            .map(e -> searchIssue(client, new IssueKey(url, e.getKey()), e.getValue(), session))
+                            .toArray(CompletableFuture[]::new));
+                });
+    }
+
+    /**
+     * @param unasked counts the issues returned under another key than asked for,
+     * the keys of moved issues.
+     */
+    private CompletableFuture<Void> searchIssues(JiraRestClient client, String url, String jql, int startAt,
+                                                 Map<String, CompletableFuture<Optional<IssueStatus>>> pending,
+                                                 AtomicInteger unasked, TrackerSession session)
+    {
+        return session.send(url, () -> toFuture(client.getSearchClient().searchJql(jql, SEARCH_PAGE_SIZE, startAt,
+                        fieldsFor(session))))
+                .thenCompose(page -> {
+                    int retrieved = 0;
+                    for (Issue issue : page.getIssues())
+                    {
+                        IssueKey key = new IssueKey(url, issue.getKey());
+                        CompletableFuture<Optional<IssueStatus>> status = pending.get(key.getIssue());
+                        if (status != null)
+                        {
+                            issueRetrieved(key, issue, status, session);
+                        }
+                        else
+                        {
+                            unasked.incrementAndGet();
+                        }
+                        retrieved++;
+                    }
+                    return retrieved > 0 && startAt + retrieved < page.getTotal()
+                            ? searchIssues(client, url, jql, startAt + retrieved, pending, unasked, session)
+                            : CompletableFuture.completedFuture(null);
+                });
+    }
+
+    /**
+     * Searches for a single issue, which also finds issues moved to another key.
+     */
+    private CompletableFuture<Void> searchIssue(JiraRestClient client, IssueKey key,
+                                                CompletableFuture<Optional<IssueStatus>> status, TrackerSession session)
+    {
+        return session.send(key.getUrl(), () -> toFuture(client.getSearchClient().searchJql(
+                        constructKeyQuery(Collections.singletonList(key.getIssue())), 1, 0, fieldsFor(session))))
+                .handle((page, failure) -> {
+                    if (failure != null && isBadRequest(unwrap(failure)))
+                    {
+                        // jira rejects the search for a key that does not exist
+                        status.complete(Optional.empty());
+                        return null;
+                    }
+                    if (failure != null)
+                    {
+                        status.completeExceptionally(unwrap(failure));
+                        return null;
+                    }
+                    Iterator<Issue> issues = page.getIssues().iterator();
+                    if (issues.hasNext())
+                    {
+                        issueRetrieved(key, issues.next(), status, session);
+                    }
+                    else
+                    {
+                        status.complete(Optional.empty());
+                    }
+                    return null;
+                });
+    }
+
+    /**
+     * @return all fields for the verbose output, which describes the retrieved
+     * issues, only the fields of the status otherwise.
+     */
+    private static Set<String> fieldsFor(TrackerSession session)
+    {
+        return session.getConfiguration().isVerbose() ? ALL_FIELDS : STATUS_FIELDS;
+    }
+
+    private static void issueRetrieved(IssueKey key, Issue issue, CompletableFuture<Optional<IssueStatus>> status,
+                                       TrackerSession session)
+    {
+        if (session.getConfiguration().isVerbose())
+        {
+            getRetrievedIssues(session).putIfAbsent(key, issue);
+        }
+        status.complete(Optional.of(statusOf(issue)));
+    }
+
+    /**
+     * @return the status of the issue as retrieved right now, without a resolution while it is open.
+     */
+    private static IssueStatus statusOf(Issue issue)
+    {
+        return new IssueStatus(issue.getResolution() == null ? null : issue.getResolution().getName(),
+                System.currentTimeMillis());
+    }
+
+    /**
+     * Whole issues as retrieved from jira, needed only for the verbose output.
+     */
+    private static Map<IssueKey, Issue> getRetrievedIssues(TrackerSession session)
+    {
+        return session.getResource(RETRIEVED_ISSUES, ConcurrentHashMap::new);
+    }
+
+    @Override
+    public CompletableFuture<Optional<String>> describe(String url, String issue, TrackerSession session)
+    {
+        Issue retrieved = getRetrievedIssues(session).get(new IssueKey(url, issue));
+        if (retrieved != null)
+        {
+            return CompletableFuture.completedFuture(Optional.of(
+                    constructVerboseMessageForIssue(retrieved, session.getConfiguration())));
+        }
+        JiraRestClient client;
+        try
+        {
+            client = getClient(url, session);
+        }
+        catch (URISyntaxException | RuntimeException ex)
+        {
+            CompletableFuture<Optional<String>> toReturn = new CompletableFuture<>();
+            toReturn.completeExceptionally(ex);
+            return toReturn;
+        }
+        return session.send(url, () -> toFuture(client.getIssueClient().getIssue(issue)))
+                .thenApply(i -> Optional.of(constructVerboseMessageForIssue(i, session.getConfiguration())));
+    }
+
+    @Override
+    public String constructBrowseUrl(String url, String issue)
+    {
+        return url + "browse/" + issue;
+    }
+
+    @Override
+    public boolean isConnectionFailure(Throwable failure)
+    {
+        if (failure instanceof RestClientException)
+        {
+            RestClientException ex = (RestClientException) failure;
+            return !ex.getStatusCode().isPresent() || ex.getStatusCode().get() >= 500;
+        }
+        return true;
+    }
+
+    /**
+     * The client does not expose the Retry-After header of the answer, so
+     * requests are sent again after a backoff.
+     */
+    @Override
+    public boolean isRateLimited(Throwable failure)
+    {
+        if (!(failure instanceof RestClientException))
+        {
+            return false;
+        }
+        RestClientException ex = (RestClientException) failure;
+        return ex.getStatusCode().isPresent() && ex.getStatusCode().get() == TOO_MANY_REQUESTS;
+    }
+
+    /**
+     * Keeps the shared clients open while no compilation uses them, until {@link #releaseClients()}.
+     */
+    public static void holdClients(Duration idleTimeout)
+    {
+        CLIENTS.register(idleTimeout);
+    }
+
+    public static void releaseClients()
+    {
+        CLIENTS.unregister();
+    }
+
+    /**
+     * Switches the noisy loggers of the client off for good, once for the whole JVM,
+     * when the first client is created, so compilations without jira issues do not
+     * load the client and its logging at all. Lookups run concurrently and
+     * asynchronously, so the loggers cannot be switched off just around them.
+     */
+    private static void quietClientLoggers()
+    {
+        if (loggersQuiet)
+        {
+            return;
+        }
+        synchronized (JiraIssueTracker.class)
+        {
+            for (String name : NOISY_LOGGERS)
+            {
+                org.slf4j.Logger logger = LoggerFactory.getLogger(name);
+                // another slf4j binding is left as it is configured
+                if (logger instanceof Logger)
+                {
+                    ((Logger) logger).setLevel(Level.OFF);
+                }
+            }
+            loggersQuiet = true;
+        }
+    }
+
+    private static JiraRestClient getClient(String url, TrackerSession session) throws URISyntaxException
+    {
+        return session.getResource(LEASED_CLIENTS, () -> new LeasedClients(session.getConfiguration())).lease(url);
+    }
+
+    private static String constructKeyQuery(Collection<String> issues)
+    {
+        return issues.stream()
+                .map(JiraIssueTracker::quote)
+                .collect(Collectors.joining(",", "key in (", ")"));
+    }
+
+    private static String constructResolutionQuery(Collection<String> resolutions)
+    {
+        return resolutions.stream()
+                .map(JiraIssueTracker::quote)
+                .collect(Collectors.joining(",", "resolution in (", ")"));
+    }
+
+    private static String quote(String value)
+    {
+        return "\"" + value.replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+    }
+
+    private static boolean isBadRequest(Throwable failure)
+    {
+        if (!(failure instanceof RestClientException))
+        {
+            return false;
+        }
+        RestClientException ex = (RestClientException) failure;
+        return ex.getStatusCode().isPresent() && ex.getStatusCode().get() == 400;
+    }
+
+    private static Throwable unwrap(Throwable failure)
+    {
+        Throwable toReturn = failure;
+        while ((toReturn instanceof CompletionException || toReturn instanceof ExecutionException)
+                && toReturn.getCause() != null)
+        {
+            toReturn = toReturn.getCause();
+        }
+        return toReturn;
+    }
+
+    /**
+     * @return future completed with the promise, cancelling it cancels the promise.
+     */
+    private static <T> CompletableFuture<T> toFuture(Promise<T> promise)
+    {
+        CompletableFuture<T> toReturn = new CompletableFuture<T>()
+        {
+            @Override
+            public boolean cancel(boolean mayInterruptIfRunning)
+            {
+                promise.cancel(mayInterruptIfRunning);
+                return super.cancel(mayInterruptIfRunning);
+            }
+        };
+        promise.then(new FutureCallback<T>()
+        {
+            @Override
+            public void onSuccess(T value)
+            {
+                toReturn.complete(value);
+            }
+
+            @Override
+            public void onFailure(Throwable failure)
+            {
+                toReturn.completeExceptionally(failure);
+            }
+        });
+        return toReturn;
+    }
+
+    private static String constructVerboseMessageForIssue(Issue issue, IssueTrackerConfiguration configuration){
+        MessageBuilder message = new MessageBuilder(configuration.getVerboseMaxMessageLength())
+                .append("Issue: ").append(issue.getKey()).append(" retrieved successfully \n")
+                .append("summary: ").append(issue.getSummary()).append("\n")
+                .append("description: ").append(issue.getDescription()).append("\n")
+                .append("resolution: ").append(issue.getResolution() != null ? issue.getResolution().getName() : null).append("\n")
+                .append("created: ").append(issue.getCreationDate()).append("\n")
+                .append("due date: ").append(issue.getDueDate()).append("\n");
+        appendComments(message, issue.getComments(), configuration.getVerboseMaxComments());
+        return message.append("\n").toString();
+    }
+
+    /**
+     * Appends the latest comments, only those are kept while iterating over all of them.
+     */
+    private static void appendComments(MessageBuilder message, Iterable<Comment> comments, int maxComments) {
+        Deque<Comment> latest = new ArrayDeque<>();
+        int omitted = 0;
+        for (Comment comment : comments) {
+            latest.addLast(comment);
+            if (latest.size() > maxComments) {
+                latest.removeFirst();
+                omitted++;
+            }
+        }
+        message.append("comments: \n");
+        if (omitted > 0) {
+            message.append("older comments left out: ").append(omitted).append("\n");
+        }
+        for (Comment comment : latest) {
+            if (message.isFull()) {
+                break;
+            }
+            message.append("date: ").append(comment.getCreationDate());
+            if (comment.getAuthor() != null) {
+                message.append(" author: ").append(comment.getAuthor().getDisplayName());
+            }
+            message.append("\n").append("comment: ").append(comment.getBody()).append("\n\n");
+        }
+    }
+
+    /**
+     * Clients leased by one compilation from the {@link ClientRegistry}, released
+     * when the compilation ends.
+     */
+    private static class LeasedClients implements AutoCloseable
+    {
+        private final IssueTrackerConfiguration configuration;
+        private final Map<String, JiraRestClient> clients = new HashMap<>();
+        private boolean closed;
+
+        private LeasedClients(IssueTrackerConfiguration aConfiguration)
+        {
+            configuration = aConfiguration;
+            CLIENTS.register(configuration.getIdleClientTimeout());
+        }
+
+        private synchronized JiraRestClient lease(String url) throws URISyntaxException
+        {
+            JiraRestClient toReturn = clients.get(url);
+            if (toReturn == null)
+            {
+                toReturn = CLIENTS.lease(url, configuration.getMaxClients(), this::connectTo);
+                clients.put(url, toReturn);
+            }
+            return toReturn;
+        }
+
+        @Override
+        public synchronized void close()
+        {
+            if (closed)
+            {
+                return;
+            }
+            closed = true;
+            clients.keySet().forEach(CLIENTS::release);
+            clients.clear();
+            CLIENTS.unregister();
+        }
+
+        private JiraRestClient connectTo(String aJiraUrl) throws URISyntaxException {
+            quietClientLoggers();
+            JiraInstance instance = configuration.getForName(aJiraUrl);
+            return instance == null
+                    ? connectToAnonymously(aJiraUrl)
+                    : connectToWithBasicAuthentication(instance.getUrl(), instance.getUser(), instance.getPassword());
+        }
+    }
+
+    private static JiraRestClient connectToWithBasicAuthentication(String aJiraUrl, String aUser,
+                                                                   String aPassword) throws URISyntaxException
+    {
+        URI uri = new URI(aJiraUrl);
+        JiraRestClient client = FACTORY.createWithBasicHttpAuthentication(uri, aUser, aPassword);
+        return client;
+    }
+
+    private static JiraRestClient connectToAnonymously(String aJiraUrl) throws URISyntaxException
+    {
+        URI uri = new URI(aJiraUrl);
+        JiraRestClient client = FACTORY.create(uri, new AnonymousAuthenticationHandler());
+        return client;
+    }
+}
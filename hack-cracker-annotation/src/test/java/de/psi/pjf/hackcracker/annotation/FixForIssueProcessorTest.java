@@ -0,0 +1,179 @@
+package de.psi.pjf.hackcracker.annotation;
+
+import de.psi.pjf.hackcracker.tracker.IssueStatus;
+import de.psi.pjf.hackcracker.tracker.IssueTracker;
+import de.psi.pjf.hackcracker.tracker.TrackerSession;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Compiles annotated sources with the processor, the issue statuses are taken from an offline snapshot.
+ */
+public class FixForIssueProcessorTest
+{
+    private static final String PROPERTY = "hackcracker.configuration";
+    private static final String URL = "http://localhost:1/";
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private String previous;
+    private Path snapshot;
+    private Path generated;
+
+    @Before
+    public void setUp() throws IOException
+    {
+        previous = System.getProperty(PROPERTY);
+        Path root = temporaryFolder.getRoot().toPath();
+        snapshot = root.resolve("snapshot.properties");
+        generated = Files.createDirectory(root.resolve("generated"));
+        configure("offlineSnapshot=\"" + snapshot + "\"");
+    }
+
+    @After
+    public void tearDown()
+    {
+        if (previous == null)
+        {
+            System.clearProperty(PROPERTY);
+        }
+        else
+        {
+            System.setProperty(PROPERTY, previous);
+        }
+    }
+
+    @Test
+    public void verdictIsReusedByTheNextCompilation() throws IOException
+    {
+        Files.write(snapshot, Arrays.asList(URL.replace(":", "\\:") + "browse/ABC-1=" + System.currentTimeMillis() + ";Fixed"),
+                StandardCharsets.ISO_8859_1);
+        Path source = writeSource("@FixForIssue(url = \"" + URL + "\", issue = \"ABC-1\")");
+        assertEquals(1, compile(source).size());
+        // the issue is not known anymore, only the verdict still says it is resolved
+        Files.delete(snapshot);
+        List<String> errors = compile(source);
+        assertEquals(1, errors.size());
+        assertTrue(errors.get(0).contains("ABC-1"));
+        try (Stream<Path> files = Files.list(generated))
+        {
+            assertEquals(0, files.count());
+        }
+    }
+
+    @Test
+    public void changedIssuesAreCheckedAgain() throws IOException
+    {
+        Files.write(snapshot, Arrays.asList(URL.replace(":", "\\:") + "browse/ABC-1=" + System.currentTimeMillis() + ";Fixed"),
+                StandardCharsets.ISO_8859_1);
+        assertEquals(1, compile(writeSource("@FixForIssue(url = \"" + URL + "\", issue = \"ABC-1\")")).size());
+        assertEquals(0, compile(writeSource("@FixForIssue(url = \"" + URL + "\", issue = \"ABC-2\")")).size());
+    }
+
+    @Test
+    public void customTrackerTypeSelectsItsBackend() throws IOException
+    {
+        configure("");
+        List<String> errors = compile(writeSource(
+                "@FixForIssue(url = \"" + URL + "\", issue = \"ABC-3\", customTrackerType = \"" + ResolvingIssueTracker.TYPE + "\")"));
+        assertEquals(1, errors.size());
+        assertTrue(errors.get(0).contains(URL + "ABC-3"));
+    }
+
+    private void configure(String attributes) throws IOException
+    {
+        Path root = temporaryFolder.getRoot().toPath();
+        Path configuration = Files.createTempFile(root, "issue_trackers", ".xml");
+        Files.write(configuration, Arrays.asList(
+                "<configuration cacheDirectory=\"" + root.resolve("cache") + "\" " + attributes + " />"),
+                StandardCharsets.UTF_8);
+        System.setProperty(PROPERTY, configuration.toString());
+    }
+
+    private Path writeSource(String annotation) throws IOException
+    {
+        Path directory = temporaryFolder.getRoot().toPath().resolve("src/p");
+        Files.createDirectories(directory);
+        Path source = directory.resolve("Hack.java");
+        Files.write(source, Arrays.asList(
+                "package p;",
+                "import de.psi.pjf.hackcracker.annotation.FixForIssue;",
+                "public class Hack {",
+                "    " + annotation,
+                "    void hack() {}",
+                "}"), StandardCharsets.UTF_8);
+        return source;
+    }
+
+    /**
+     * @return the errors of the compilation.
+     */
+    private List<String> compile(Path source) throws IOException
+    {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        try (StandardJavaFileManager fileManager = compiler.getStandardFileManager(diagnostics, null, StandardCharsets.UTF_8))
+        {
+            List<String> options = Arrays.asList("-proc:only", "-classpath", System.getProperty("java.class.path"),
+                    "-s", generated.toString());
+            JavaCompiler.CompilationTask task = compiler.getTask(null, fileManager, diagnostics, options, null,
+                    fileManager.getJavaFileObjectsFromFiles(Collections.singletonList(new File(source.toString()))));
+            task.setProcessors(Collections.singletonList(new FixForIssueProcessor()));
+            task.call();
+        }
+        return diagnostics.getDiagnostics().stream()
+                .filter(d -> d.getKind() == Diagnostic.Kind.ERROR)
+                .map(d -> d.getMessage(null))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Backend of an issue tracker the annotation does not know, registered in the test resources.
+     */
+    public static class ResolvingIssueTracker implements IssueTracker
+    {
+        static final String TYPE = "RESOLVING";
+
+        @Override
+        public String getType()
+        {
+            return TYPE;
+        }
+
+        @Override
+        public Map<String, CompletableFuture<Optional<IssueStatus>>> lookup(String url, List<String> issues,
+                                                                          TrackerSession session)
+        {
+            return issues.stream().collect(Collectors.toMap(Function.identity(),
+                    issue -> session.send(url, () -> CompletableFuture.completedFuture(
+                            Optional.of(new IssueStatus("Fixed", System.currentTimeMillis()))))));
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package de.psi.pjf.hackcracker.annotation.configuration;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class IssueTrackerConfigurationTest
+{
+    private static final String PROPERTY = "hackcracker.configuration";
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private String previous;
+
+    @Before
+    public void setUp()
+    {
+        previous = System.getProperty(PROPERTY);
+    }
+
+    @After
+    public void tearDown()
+    {
+        if (previous == null)
+        {
+            System.clearProperty(PROPERTY);
+        }
+        else
+        {
+            System.setProperty(PROPERTY, previous);
+        }
+    }
+
+    @Test
+    public void readsAttributesAndInstances() throws IOException
+    {
+        IssueTrackerConfiguration configuration = load(
+                "<configuration verbose=\"true\" cacheTtlMinutes=\" 5 \" maxRequestsPerSecondPerHost=\"2.5\""
+                + " resolvedResolutions=\"Done, Won't Fix ,\" unknownAttribute=\"x\">",
+                "  <jira>",
+                "    <url>http://jira.example.com/</url>",
+                "    <user>user</user>",
+                "    <password><![CDATA[secret]]></password>",
+                "  </jira>",
+                "  <github>",
+                "    <url>https://github.com/owner/repo</url>",
+                "    <password>token</password>",
+                "  </github>",
+                "</configuration>");
+        assertTrue(configuration.isVerbose());
+        assertEquals(Duration.ofMinutes(5), configuration.getCacheTtl());
+        assertEquals(2.5, configuration.getMaxRequestsPerSecondPerHost(), 0);
+        assertEquals(new LinkedHashSet<>(Arrays.asList("Done", "Won't Fix")), configuration.getResolvedResolutions());
+        assertEquals("user", configuration.getForName("http://jira.example.com/").getUser());
+        assertEquals("secret", configuration.getForName("http://jira.example.com/").getPassword());
+        assertEquals("token", configuration.getInstance("github", "https://github.com/owner/repo").getPassword());
+        assertNull(configuration.getInstance("jira", "https://github.com/owner/repo"));
+    }
+
+    @Test
+    public void invalidNumbersFallBackToDefaults() throws IOException
+    {
+        IssueTrackerConfiguration configuration = load(
+                "<configuration cacheTtlMinutes=\"sixty\" maxRetries=\"-1\" timeBudgetSeconds=\"99999999999\""
+                + " maxRequestsPerSecondPerHost=\"fast\" daemonPort=\"70000\" verboseMaxComments=\"\" />");
+        IssueTrackerConfiguration defaults = load("<configuration />");
+        assertEquals(defaults.getCacheTtl(), configuration.getCacheTtl());
+        assertEquals(defaults.getMaxRetries(), configuration.getMaxRetries());
+        assertEquals(defaults.getTimeBudget(), configuration.getTimeBudget());
+        assertEquals(defaults.getMaxRequestsPerSecondPerHost(), configuration.getMaxRequestsPerSecondPerHost(), 0);
+        assertEquals(defaults.getDaemonPort(), configuration.getDaemonPort());
+        assertEquals(defaults.getVerboseMaxComments(), configuration.getVerboseMaxComments());
+    }
+
+    @Test
+    public void zeroSwitchesOff() throws IOException
+    {
+        IssueTrackerConfiguration configuration = load(
+                "<configuration cacheTtlMinutes=\"0\" circuitBreakerThreshold=\"0\" maxRequestsPerSecondPerHost=\"0\" />");
+        assertTrue(configuration.getCacheTtl().isZero());
+        assertEquals(0, configuration.getCircuitBreakerThreshold());
+        assertEquals(0, configuration.getMaxRequestsPerSecondPerHost(), 0);
+    }
+
+    @Test
+    public void zeroTimeoutsFallBackToDefaults() throws IOException
+    {
+        IssueTrackerConfiguration configuration = load(
+                "<configuration requestTimeoutSeconds=\"0\" timeBudgetSeconds=\"0\" />");
+        assertEquals(Duration.ofSeconds(10), configuration.getRequestTimeout());
+        assertEquals(Duration.ofSeconds(60), configuration.getTimeBudget());
+        IssueTrackerConfiguration shortest = load(
+                "<configuration requestTimeoutSeconds=\"1\" timeBudgetSeconds=\"1\" />");
+        assertEquals(Duration.ofSeconds(1), shortest.getRequestTimeout());
+        assertEquals(Duration.ofSeconds(1), shortest.getTimeBudget());
+    }
+
+    @Test
+    public void missingOrMalformedFileGivesDefaults() throws IOException
+    {
+        System.setProperty(PROPERTY, temporaryFolder.getRoot().toPath().resolve("missing.xml").toString());
+        IssueTrackerConfiguration missing = IssueTrackerConfiguration.getConfiguration();
+        assertFalse(missing.isSwitchOff());
+        assertEquals(Duration.ofMinutes(60), missing.getCacheTtl());
+        IssueTrackerConfiguration malformed = load("<configuration cacheTtlMinutes=\"5\"");
+        assertEquals(Duration.ofMinutes(60), malformed.getCacheTtl());
+        IssueTrackerConfiguration otherRoot = load("<settings cacheTtlMinutes=\"5\" />");
+        assertEquals(Duration.ofMinutes(60), otherRoot.getCacheTtl());
+    }
+
+    @Test
+    public void modifiedFileIsReadAgain() throws IOException
+    {
+        Path file = write("<configuration maxRetries=\"1\" />");
+        System.setProperty(PROPERTY, file.toString());
+        IssueTrackerConfiguration first = IssueTrackerConfiguration.getConfiguration();
+        assertEquals(1, first.getMaxRetries());
+        assertSame(first, IssueTrackerConfiguration.getConfiguration());
+        Files.write(file, Arrays.asList("<configuration maxRetries=\"2\" />"), StandardCharsets.UTF_8);
+        Files.setLastModifiedTime(file, FileTime.fromMillis(
+                Files.getLastModifiedTime(file).toMillis() + 1000));
+        assertEquals(2, IssueTrackerConfiguration.getConfiguration().getMaxRetries());
+    }
+
+    private IssueTrackerConfiguration load(String... lines) throws IOException
+    {
+        System.setProperty(PROPERTY, write(lines).toString());
+        return IssueTrackerConfiguration.getConfiguration();
+    }
+
+    private Path write(String... lines) throws IOException
+    {
+        Path file = temporaryFolder.newFile().toPath();
+        Files.write(file, Arrays.asList(lines), StandardCharsets.UTF_8);
+        return file;
+    }
+}
@@ -0,0 +1,141 @@
+package de.psi.pjf.hackcracker.jira;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.stream.Stream;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class CircuitBreakerTest
+{
+    private static final String URL = "http://jira.example.com:8080/";
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private Path directory;
+
+    @Before
+    public void setUp()
+    {
+        directory = temporaryFolder.getRoot().toPath();
+    }
+
+    @Test
+    public void opensAfterThresholdConsecutiveFailures()
+    {
+        CircuitBreaker breaker = new CircuitBreaker(URL, directory, 3, Duration.ofMinutes(1));
+        breaker.recordFailure();
+        breaker.recordFailure();
+        breaker.checkClosed();
+        breaker.recordFailure();
+        assertOpen(breaker);
+    }
+
+    @Test
+    public void successResetsTheFailures()
+    {
+        CircuitBreaker breaker = new CircuitBreaker(URL, directory, 2, Duration.ofMinutes(1));
+        breaker.recordFailure();
+        breaker.recordSuccess();
+        breaker.recordFailure();
+        breaker.checkClosed();
+    }
+
+    @Test
+    public void neverOpensWithoutThreshold()
+    {
+        CircuitBreaker breaker = new CircuitBreaker(URL, directory, 0, Duration.ofMinutes(1));
+        for (int i = 0; i < 10; i++)
+        {
+            breaker.recordFailure();
+        }
+        breaker.checkClosed();
+    }
+
+    @Test
+    public void openStateIsSharedWithLaterCompilations()
+    {
+        CircuitBreaker breaker = new CircuitBreaker(URL, directory, 1, Duration.ofMinutes(1));
+        breaker.recordFailure();
+        assertEquals(1, countStateFiles());
+        assertOpen(new CircuitBreaker(URL, directory, 1, Duration.ofMinutes(1)));
+        breaker.recordSuccess();
+        assertEquals(0, countStateFiles());
+        new CircuitBreaker(URL, directory, 1, Duration.ofMinutes(1)).checkClosed();
+    }
+
+    @Test
+    public void runningBreakerSeesTheStateOfOtherProcesses() throws IOException
+    {
+        CircuitBreaker running = new CircuitBreaker(URL, directory, 3, Duration.ofMinutes(1));
+        running.checkClosed();
+        new CircuitBreaker(URL, directory, 1, Duration.ofMinutes(1)).recordFailure();
+        assertOpen(running);
+        try (Stream<Path> files = Files.list(directory))
+        {
+            Files.delete(files.findFirst().get());
+        }
+        running.checkClosed();
+    }
+
+    @Test
+    public void singleFailureAfterCooldownOpensAgain() throws InterruptedException
+    {
+        CircuitBreaker breaker = new CircuitBreaker(URL, directory, 3, Duration.ofMillis(50));
+        breaker.recordFailure();
+        breaker.recordFailure();
+        breaker.recordFailure();
+        assertOpen(breaker);
+        Thread.sleep(100);
+        breaker.checkClosed();
+        breaker.recordFailure();
+        assertOpen(breaker);
+    }
+
+    @Test
+    public void malformedStateFileIsIgnored() throws IOException
+    {
+        new CircuitBreaker(URL, directory, 1, Duration.ofMinutes(1)).recordFailure();
+        try (Stream<Path> files = Files.list(directory))
+        {
+            Path stateFile = files.findFirst().get();
+            Files.write(stateFile, "not a time".getBytes(StandardCharsets.UTF_8));
+        }
+        new CircuitBreaker(URL, directory, 1, Duration.ofMinutes(1)).checkClosed();
+    }
+
+    private static void assertOpen(CircuitBreaker breaker)
+    {
+        try
+        {
+            breaker.checkClosed();
+            fail("the circuit breaker should be open");
+        }
+        catch (CircuitBreaker.OpenException ex)
+        {
+            assertTrue(ex.getMessage().contains(URL));
+        }
+    }
+
+    private long countStateFiles()
+    {
+        try (Stream<Path> files = Files.list(directory))
+        {
+            return files.filter(f -> f.getFileName().toString().endsWith(".open")).count();
+        }
+        catch (IOException ex)
+        {
+            throw new AssertionError(ex);
+        }
+    }
+}
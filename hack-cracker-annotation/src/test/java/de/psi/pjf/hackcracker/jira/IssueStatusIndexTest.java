@@ -0,0 +1,137 @@
+package de.psi.pjf.hackcracker.jira;
+
+import de.psi.pjf.hackcracker.tracker.IssueStatus;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class IssueStatusIndexTest
+{
+    private static final String URL = "http://jira.example.com/";
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private Path file;
+
+    @Before
+    public void setUp()
+    {
+        file = temporaryFolder.getRoot().toPath().resolve("snapshot" + IssueStatusIndex.EXTENSION);
+    }
+
+    @Test
+    public void findsEveryIssueWritten() throws IOException
+    {
+        Map<IssueKey, IssueStatus> statuses = new HashMap<>();
+        for (int i = 0; i < 1000; i++)
+        {
+            statuses.put(key("ABC-" + i), new IssueStatus(i % 3 == 0 ? "Fixed" : i % 3 == 1 ? "Won't Fix" : null, i));
+        }
+        IssueStatusIndex.write(file, statuses);
+        IssueStatusIndex index = IssueStatusIndex.open(file);
+        assertEquals(1000, index.size());
+        statuses.forEach((key, status) -> {
+            IssueStatus found = index.get(key).get();
+            assertEquals(status.getResolution(), found.getResolution());
+            assertEquals(status.getFetchedAt(), found.getFetchedAt());
+        });
+        assertFalse(index.get(key("ABC-1000")).isPresent());
+        assertEquals(1000, index.toMap().size());
+    }
+
+    @Test
+    public void missingFileIsEmpty()
+    {
+        IssueStatusIndex index = IssueStatusIndex.open(file);
+        assertEquals(0, index.size());
+        assertFalse(index.get(key("ABC-1")).isPresent());
+    }
+
+    @Test
+    public void truncatedFileIsEmpty() throws IOException
+    {
+        writeIssues("ABC-1", "ABC-2");
+        byte[] bytes = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(bytes, bytes.length - 5));
+        assertEquals(0, IssueStatusIndex.open(file).size());
+        Files.write(file, Arrays.copyOf(bytes, 8));
+        assertEquals(0, IssueStatusIndex.open(file).size());
+    }
+
+    @Test
+    public void entriesPointingOutsideTheFileAreCorrupt() throws IOException
+    {
+        writeIssues("ABC-1", "ABC-2");
+        byte[] bytes = Files.readAllBytes(file);
+        // key offset of the second entry
+        ByteBuffer.wrap(bytes).putInt(12 + 32 + 16, Integer.MAX_VALUE - 2);
+        Files.write(file, bytes);
+        IssueStatusIndex index = IssueStatusIndex.open(file);
+        assertEquals(0, index.size());
+        assertFalse(index.get(key("ABC-1")).isPresent());
+    }
+
+    @Test
+    public void unsortedEntriesAreCorrupt() throws IOException
+    {
+        writeIssues("ABC-1", "ABC-2");
+        byte[] bytes = Files.readAllBytes(file);
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        buffer.putLong(12, Long.MAX_VALUE);
+        Files.write(file, bytes);
+        assertEquals(0, IssueStatusIndex.open(file).size());
+    }
+
+    @Test
+    public void otherFilesAreNoIndex() throws IOException
+    {
+        Files.write(file, "ABC-1=1;Fixed\n".getBytes("UTF-8"));
+        assertEquals(0, IssueStatusIndex.open(file).size());
+    }
+
+    @Test
+    public void mappingIsSharedUntilTheFileIsReplaced() throws IOException
+    {
+        writeIssues("ABC-1");
+        IssueStatusIndex first = IssueStatusIndex.open(file);
+        assertSame(first, IssueStatusIndex.open(file));
+        writeIssues("ABC-1", "ABC-2");
+        Files.setLastModifiedTime(file, FileTime.fromMillis(Files.getLastModifiedTime(file).toMillis() + 1000));
+        IssueStatusIndex second = IssueStatusIndex.open(file);
+        assertNotSame(first, second);
+        assertEquals(2, second.size());
+        assertEquals(1, first.size());
+        assertNull(first.get(key("ABC-1")).get().getResolution());
+    }
+
+    private void writeIssues(String... issues) throws IOException
+    {
+        Map<IssueKey, IssueStatus> statuses = new HashMap<>();
+        for (String issue : issues)
+        {
+            statuses.put(key(issue), new IssueStatus(null, 1));
+        }
+        IssueStatusIndex.write(file, statuses);
+    }
+
+    private static IssueKey key(String issue)
+    {
+        return IssueKey.parse(URL + "browse/" + issue);
+    }
+}
@@ -0,0 +1,231 @@
+package de.psi.pjf.hackcracker.jira;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class RequestLimiterTest
+{
+    private static final String HOST = "jira.example.com:443";
+    private static final Duration TIMEOUT = Duration.ofSeconds(10);
+
+    private final ManualClock clock = new ManualClock();
+
+    @Test
+    public void startsNoMoreRequestsThanAllowedAtOnce()
+    {
+        RequestLimiter limiter = new RequestLimiter(clock, HOST, 2, TIMEOUT, 0);
+        AtomicInteger started = new AtomicInteger();
+        List<CompletableFuture<String>> responses = new ArrayList<>();
+        List<CompletableFuture<String>> results = new ArrayList<>();
+        for (int i = 0; i < 3; i++)
+        {
+            CompletableFuture<String> response = new CompletableFuture<>();
+            responses.add(response);
+            results.add(limiter.submit(() -> {
+                started.incrementAndGet();
+                return response;
+            }, deadlineIn(TIMEOUT)));
+        }
+        assertEquals(2, started.get());
+        responses.get(0).complete("first");
+        assertEquals("first", results.get(0).join());
+        assertEquals(3, started.get());
+        responses.get(1).complete("second");
+        responses.get(2).complete("third");
+        assertEquals("third", results.get(2).join());
+    }
+
+    @Test
+    public void startsRequestsAtTheRate()
+    {
+        RequestLimiter limiter = new RequestLimiter(clock, HOST, 100, TIMEOUT, 20);
+        AtomicInteger started = submitCounted(limiter, 30);
+        // 20 tokens at once, the other 10 at 20 per second
+        assertEquals(20, started.get());
+        clock.advance(Duration.ofMillis(49));
+        assertEquals(20, started.get());
+        clock.advance(Duration.ofMillis(1));
+        assertEquals(21, started.get());
+        clock.advance(Duration.ofMillis(449));
+        assertEquals(29, started.get());
+        clock.advance(Duration.ofMillis(1));
+        assertEquals(30, started.get());
+    }
+
+    @Test
+    public void pausedRequestStartsAfterThePause()
+    {
+        RequestLimiter limiter = new RequestLimiter(clock, HOST, 1, TIMEOUT, 1);
+        limiter.rateLimited(Optional.of(Duration.ofMillis(300)), 0);
+        CompletableFuture<String> paused = limiter.submit(() -> CompletableFuture.completedFuture("paused"),
+                deadlineIn(TIMEOUT));
+        clock.advance(Duration.ofMillis(299));
+        assertFalse(paused.isDone());
+        // the token of the halved rate of 0.5 per second comes 2 seconds after the pause began
+        clock.advance(Duration.ofMillis(1701));
+        assertEquals("paused", paused.getNow(null));
+    }
+
+    @Test
+    public void failsAtOnceIfThePauseEndsAfterTheDeadline()
+    {
+        RequestLimiter limiter = new RequestLimiter(clock, HOST, 1, TIMEOUT, 0);
+        limiter.rateLimited(Optional.of(Duration.ofHours(1)), 0);
+        AtomicInteger started = new AtomicInteger();
+        CompletableFuture<String> result = limiter.submit(() -> {
+            started.incrementAndGet();
+            return CompletableFuture.completedFuture("started");
+        }, deadlineIn(Duration.ofSeconds(1)));
+        assertTrue(result.isCompletedExceptionally());
+        try
+        {
+            result.join();
+            fail("the request should not be started");
+        }
+        catch (CompletionException ex)
+        {
+            assertTrue(ex.getCause() instanceof RequestLimiter.RateLimitedException);
+            assertTrue(ex.getCause().getMessage().contains(HOST));
+        }
+        assertEquals(0, started.get());
+    }
+
+    @Test
+    public void burstOfRejectionsHalvesTheRateOnce()
+    {
+        RequestLimiter limiter = new RequestLimiter(clock, HOST, 100, TIMEOUT, 8);
+        assertEquals(Duration.ofMillis(100), limiter.rateLimited(Optional.of(Duration.ofMillis(100)), 0));
+        limiter.rateLimited(Optional.of(Duration.ofMillis(100)), 0);
+        limiter.rateLimited(Optional.of(Duration.ofMillis(100)), 0);
+        AtomicInteger started = submitCounted(limiter, 5);
+        clock.advance(Duration.ofMillis(100));
+        assertEquals(0, started.get());
+        // halved once to 4 per second the tokens come every 250ms from the beginning of the pause,
+        // halved three times to 1 per second the first would come only after a second
+        clock.advance(Duration.ofMillis(150));
+        assertEquals(1, started.get());
+        clock.advance(Duration.ofMillis(1000));
+        assertEquals(5, started.get());
+    }
+
+    @Test
+    public void requestWithoutResponseTimesOut()
+    {
+        RequestLimiter limiter = new RequestLimiter(clock, HOST, 1, Duration.ofMillis(100), 0);
+        CompletableFuture<String> response = new CompletableFuture<>();
+        CompletableFuture<String> result = limiter.submit(() -> response, deadlineIn(TIMEOUT));
+        clock.advance(Duration.ofMillis(99));
+        assertFalse(result.isDone());
+        clock.advance(Duration.ofMillis(1));
+        assertTrue(response.isCancelled());
+        try
+        {
+            result.join();
+            fail("the request should time out");
+        }
+        catch (CompletionException ex)
+        {
+            assertTrue(ex.getCause() instanceof TimeoutException);
+        }
+        assertEquals("next", limiter.submit(() -> CompletableFuture.completedFuture("next"), deadlineIn(TIMEOUT)).join());
+    }
+
+    private AtomicInteger submitCounted(RequestLimiter limiter, int requests)
+    {
+        AtomicInteger started = new AtomicInteger();
+        for (int i = 0; i < requests; i++)
+        {
+            limiter.submit(() -> CompletableFuture.completedFuture(started.incrementAndGet()), deadlineIn(TIMEOUT));
+        }
+        return started;
+    }
+
+    private long deadlineIn(Duration duration)
+    {
+        return clock.nanoTime() + duration.toNanos();
+    }
+
+    /**
+     * Runs the delayed tasks only when the test moves the time on.
+     */
+    private static class ManualClock implements RequestLimiter.Clock
+    {
+        private final Queue<Task> tasks = new PriorityQueue<>();
+        private long now;
+        private long scheduled;
+
+        @Override
+        public synchronized long nanoTime()
+        {
+            return now;
+        }
+
+        @Override
+        public synchronized Future<?> schedule(Runnable task, long delayNanos)
+        {
+            Task toReturn = new Task(task, now + delayNanos, scheduled++);
+            tasks.add(toReturn);
+            return toReturn;
+        }
+
+        void advance(Duration duration)
+        {
+            long until;
+            synchronized (this)
+            {
+                until = now + duration.toNanos();
+            }
+            while (true)
+            {
+                Task next;
+                synchronized (this)
+                {
+                    next = tasks.peek();
+                    if (next == null || next.dueAt > until)
+                    {
+                        now = until;
+                        return;
+                    }
+                    tasks.poll();
+                    now = next.dueAt;
+                }
+                next.run();
+            }
+        }
+    }
+
+    private static class Task extends FutureTask<Void> implements Comparable<Task>
+    {
+        private final long dueAt;
+        private final long order;
+
+        Task(Runnable task, long aDueAt, long aOrder)
+        {
+            super(task, null);
+            dueAt = aDueAt;
+            order = aOrder;
+        }
+
+        @Override
+        public int compareTo(Task other)
+        {
+            return dueAt != other.dueAt ? Long.compare(dueAt, other.dueAt) : Long.compare(order, other.order);
+        }
+    }
+}
@@ -0,0 +1,206 @@
+package de.psi.pjf.hackcracker.tracker.github;
+
+import de.psi.pjf.hackcracker.annotation.configuration.IssueTrackerConfiguration;
+import de.psi.pjf.hackcracker.tracker.IssueStatus;
+import de.psi.pjf.hackcracker.tracker.TrackerSession;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+import org.codehaus.jettison.json.JSONException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Runs the GitHub backend against a {@link GitHubStub}.
+ */
+public class GitHubIssueTrackerTest
+{
+    private static final String TOKEN = "token";
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private final GitHubIssueTracker tracker = new GitHubIssueTracker();
+    private GitHubStub gitHub;
+    private String previousConfiguration;
+
+    @Before
+    public void setUp() throws IOException
+    {
+        Map<Integer, String> stateReasons = new HashMap<>();
+        stateReasons.put(1, "COMPLETED");
+        stateReasons.put(2, null);
+        stateReasons.put(3, "NOT_PLANNED");
+        stateReasons.put(7, "COMPLETED");
+        gitHub = new GitHubStub(stateReasons);
+        gitHub.requireToken(TOKEN);
+        previousConfiguration = System.getProperty("hackcracker.configuration");
+        Path configuration = temporaryFolder.newFile("issue_trackers.xml").toPath();
+        Files.write(configuration, Arrays.asList(
+                "<configuration>",
+                "  <github>",
+                "    <url>" + gitHub.getUrl() + "</url>",
+                "    <password>" + TOKEN + "</password>",
+                "  </github>",
+                "  <github>",
+                "    <url>" + missingRepository() + "</url>",
+                "    <password>" + TOKEN + "</password>",
+                "  </github>",
+                "</configuration>"), StandardCharsets.UTF_8);
+        System.setProperty("hackcracker.configuration", configuration.toString());
+    }
+
+    @After
+    public void tearDown()
+    {
+        gitHub.stop();
+        if (previousConfiguration == null)
+        {
+            System.clearProperty("hackcracker.configuration");
+        }
+        else
+        {
+            System.setProperty("hackcracker.configuration", previousConfiguration);
+        }
+    }
+
+    @Test
+    public void retrievesAllIssuesWithOneQuery()
+    {
+        Map<String, Optional<IssueStatus>> statuses = lookup(gitHub.getUrl(), "1", "2", "3", "4", "X-1");
+        assertEquals("Fixed", statuses.get("1").get().getResolution());
+        assertNull(statuses.get("2").get().getResolution());
+        assertEquals("Won't Fix", statuses.get("3").get().getResolution());
+        assertFalse(statuses.get("4").isPresent());
+        assertFalse(statuses.get("X-1").isPresent());
+        assertEquals(1, gitHub.getQueryCalls());
+    }
+
+    @Test
+    public void issueNumbersWithLeadingZerosAreQueriedAsNumbers()
+    {
+        Map<String, Optional<IssueStatus>> statuses = lookup(gitHub.getUrl(), "007", "1", "0");
+        assertEquals("Fixed", statuses.get("007").get().getResolution());
+        assertEquals("Fixed", statuses.get("1").get().getResolution());
+        assertFalse(statuses.get("0").isPresent());
+    }
+
+    @Test
+    public void issuesOfMissingRepositoryDoNotExist()
+    {
+        Map<String, Optional<IssueStatus>> statuses = lookup(missingRepository(), "1", "2");
+        assertFalse(statuses.get("1").isPresent());
+        assertFalse(statuses.get("2").isPresent());
+    }
+
+    @Test
+    public void requestsWithoutTokenAreUnauthorized()
+    {
+        gitHub.requireToken("another token");
+        CompletableFuture<Optional<IssueStatus>> status = tracker.lookup(gitHub.getUrl(), Arrays.asList("1"), new Session())
+                .get("1");
+        try
+        {
+            status.join();
+            fail("the request should be unauthorized");
+        }
+        catch (CompletionException ex)
+        {
+            Throwable cause = ex.getCause();
+            assertTrue(cause instanceof GitHubIssueTracker.UnexpectedResponseException);
+            assertEquals(401, ((GitHubIssueTracker.UnexpectedResponseException) cause).getStatusCode());
+            assertTrue(cause.getMessage().contains("access token"));
+            assertFalse(tracker.isConnectionFailure(cause));
+        }
+    }
+
+    @Test
+    public void rateLimitedErrorIsRateLimited()
+    {
+        gitHub.limitRate(1);
+        CompletableFuture<Optional<IssueStatus>> status = tracker.lookup(gitHub.getUrl(), Arrays.asList("1"), new Session())
+                .get("1");
+        try
+        {
+            status.join();
+            fail("the request should be rate limited");
+        }
+        catch (CompletionException ex)
+        {
+            Throwable cause = ex.getCause();
+            assertTrue(tracker.isRateLimited(cause));
+            assertTrue(tracker.getRetryAfter(cause).isPresent());
+            assertFalse(tracker.isConnectionFailure(cause));
+        }
+        assertEquals("Fixed", lookup(gitHub.getUrl(), "1").get("1").get().getResolution());
+    }
+
+    @Test
+    public void onlyUnreachableOrFailingGitHubIsAConnectionFailure()
+    {
+        assertTrue(tracker.isConnectionFailure(new UncheckedIOException(new SocketTimeoutException())));
+        assertTrue(tracker.isConnectionFailure(new TimeoutException()));
+        assertTrue(tracker.isConnectionFailure(new GitHubIssueTracker.UnexpectedResponseException("api", 502)));
+        assertFalse(tracker.isConnectionFailure(new GitHubIssueTracker.UnexpectedResponseException("api", 404)));
+        assertFalse(tracker.isConnectionFailure(new JSONException("GitHub has answered with errors")));
+        assertFalse(tracker.isConnectionFailure(new IllegalArgumentException("not the url of a GitHub repository")));
+    }
+
+    private String missingRepository()
+    {
+        return gitHub.getUrl().replace("/hacks/", "/missing/");
+    }
+
+    private Map<String, Optional<IssueStatus>> lookup(String url, String... issues)
+    {
+        Map<String, Optional<IssueStatus>> toReturn = new HashMap<>();
+        tracker.lookup(url, Arrays.asList(issues), new Session())
+                .forEach((issue, status) -> toReturn.put(issue, status.join()));
+        return toReturn;
+    }
+
+    private static class Session implements TrackerSession
+    {
+        private final Map<String, Object> resources = new ConcurrentHashMap<>();
+
+        @Override
+        public IssueTrackerConfiguration getConfiguration()
+        {
+            return IssueTrackerConfiguration.getConfiguration();
+        }
+
+        @Override
+        public <T> CompletableFuture<T> send(String url, Supplier<CompletableFuture<T>> request)
+        {
+            return request.get();
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> T getResource(String name, Supplier<T> create)
+        {
+            return (T) resources.computeIfAbsent(name, n -> create.get());
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package de.psi.pjf.hackcracker.tracker.github;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.codehaus.jettison.json.JSONException;
+import org.codehaus.jettison.json.JSONObject;
+
+/**
+ * Just enough of the GraphQL API of GitHub for the issue queries of one repository
+ * on the loopback interface: missing issues and repositories, the access token and
+ * the rate limit are answered like by GitHub.
+ */
+class GitHubStub
+{
+    private static final String OWNER = "owner";
+    private static final String NAME = "hacks";
+    private static final Pattern REPOSITORY = Pattern.compile(
+            "repository\\s*\\(\\s*owner\\s*:\\s*\"([^\"]*)\"\\s*,\\s*name\\s*:\\s*\"([^\"]*)\"");
+    private static final Pattern ISSUE = Pattern.compile("(\\w+)\\s*:\\s*issue\\s*\\(\\s*number\\s*:\\s*(\\d+)\\s*\\)");
+
+    private final Map<Integer, String> stateReasons;
+    private final HttpServer server;
+    private final AtomicInteger queryCalls = new AtomicInteger();
+    private final AtomicInteger rateLimitedQueries = new AtomicInteger();
+    private volatile String token;
+
+    /**
+     * @param aStateReasons state reason by issue number, {@code COMPLETED} for
+     * example, null for open issues.
+     */
+    GitHubStub(Map<Integer, String> aStateReasons) throws IOException
+    {
+        stateReasons = aStateReasons;
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/api/graphql", this::handleQuery);
+        server.start();
+    }
+
+    void stop()
+    {
+        server.stop(0);
+    }
+
+    void requireToken(String aToken)
+    {
+        token = aToken;
+    }
+
+    /**
+     * @param queries number of the following queries that are above the rate limit.
+     */
+    void limitRate(int queries)
+    {
+        rateLimitedQueries.set(queries);
+    }
+
+    String getUrl()
+    {
+        return "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort()
+                + "/" + OWNER + "/" + NAME + "/";
+    }
+
+    int getQueryCalls()
+    {
+        return queryCalls.get();
+    }
+
+    private void handleQuery(HttpExchange exchange) throws IOException
+    {
+        queryCalls.incrementAndGet();
+        if (!("bearer " + token).equals(exchange.getRequestHeaders().getFirst("Authorization")))
+        {
+            respond(exchange, 401, "{\"message\":\"This endpoint requires you to be authenticated.\"}");
+            return;
+        }
+        if (rateLimitedQueries.getAndUpdate(queries -> Math.max(0, queries - 1)) > 0)
+        {
+            exchange.getResponseHeaders().set("x-ratelimit-remaining", "0");
+            exchange.getResponseHeaders().set("x-ratelimit-reset",
+                    Long.toString(TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis()) + 1));
+            respond(exchange, 200, "{\"errors\":[{\"type\":\"RATE_LIMITED\","
+                    + "\"message\":\"API rate limit exceeded for user ID 1.\"}]}");
+            return;
+        }
+        String query;
+        try
+        {
+            query = new JSONObject(read(exchange.getRequestBody())).getString("query");
+        }
+        catch (JSONException ex)
+        {
+            respond(exchange, 400, "{\"message\":\"Problems parsing JSON\"}");
+            return;
+        }
+        Matcher repository = REPOSITORY.matcher(query);
+        if (!repository.find() || !OWNER.equals(repository.group(1)) || !NAME.equals(repository.group(2)))
+        {
+            respond(exchange, 200, "{\"data\":{\"repository\":null},\"errors\":[{\"type\":\"NOT_FOUND\","
+                    + "\"path\":[\"repository\"],\"message\":\"Could not resolve to a Repository.\"}]}");
+            return;
+        }
+        StringBuilder data = new StringBuilder();
+        Matcher issue = ISSUE.matcher(query);
+        while (issue.find())
+        {
+            if (issue.group(2).length() > 1 && issue.group(2).startsWith("0"))
+            {
+                // the whole query is rejected like by GitHub
+                respond(exchange, 200, "{\"errors\":[{\"message\":\"Parse error on \\\"" + issue.group(2)
+                        + "\\\" (INT)\"}]}");
+                return;
+            }
+            int number = Integer.parseInt(issue.group(2));
+            data.append(data.length() == 0 ? "" : ",").append('"').append(issue.group(1)).append("\":");
+            if (!stateReasons.containsKey(number))
+            {
+                data.append("null");
+                continue;
+            }
+            String stateReason = stateReasons.get(number);
+            data.append("{\"state\":\"").append(stateReason == null ? "OPEN" : "CLOSED")
+                    .append("\",\"stateReason\":").append(stateReason == null ? "null" : "\"" + stateReason + "\"")
+                    .append(",\"title\":\"issue ").append(number).append("\"}");
+        }
+        respond(exchange, 200, "{\"data\":{\"repository\":{" + data + "}}}");
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException
+    {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody())
+        {
+            out.write(bytes);
+        }
+    }
+
+    private static String read(InputStream body) throws IOException
+    {
+        ByteArrayOutputStream content = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        for (int read = body.read(buffer); read >= 0; read = body.read(buffer))
+        {
+            content.write(buffer, 0, read);
+        }
+        return new String(content.toByteArray(), StandardCharsets.UTF_8);
+    }
+}
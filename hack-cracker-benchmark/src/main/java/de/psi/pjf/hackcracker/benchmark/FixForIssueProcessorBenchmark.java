@@ -0,0 +1,252 @@
+package de.psi.pjf.hackcracker.benchmark;
+
+import de.psi.pjf.hackcracker.annotation.FixForIssueProcessor;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.Processor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.TypeElement;
+import javax.tools.JavaCompiler;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Measures a whole compilation with the {@link FixForIssueProcessor} over
+ * generated sources with the given number of {@code @FixForIssue} annotations,
+ * all referring to a {@link StubJiraServer} or, with {@code trackerType}
+ * {@code GITHUB}, to a {@link StubGitHubServer} on the loopback interface. The
+ * {@code baseline} benchmark runs the same compilation with a processor doing
+ * nothing, the difference is the overhead of the hack cracker. Sources of one
+ * compilation are all processed in the first round, so this is the overhead
+ * per round as well. HTTP calls per compilation are reported as secondary
+ * results, allocations by the gc profiler which {@link #main} always adds.
+ * Issue trackers configuration, issue status cache and circuit breaker state
+ * are kept in a temporary directory, the cache is off unless
+ * {@code cacheTtlMinutes} is given. Run with
+ * {@code java -jar hack-cracker-benchmark/target/benchmarks.jar [jmh options]}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FixForIssueProcessorBenchmark
+{
+    private static final int METHODS_PER_CLASS = 50;
+    private static final int EVERY_NTH_ISSUE_RESOLVED = 10;
+
+    @Param({"10", "100", "1000"})
+    public int annotations;
+
+    @Param({"20"})
+    public long latencyMillis;
+
+    @Param({"0"})
+    public int cacheTtlMinutes;
+
+    @Param({"JIRA", "GITHUB"})
+    public String trackerType;
+
+    private Path workDirectory;
+    private StubJiraServer jira;
+    private StubGitHubServer gitHub;
+    private List<File> sources;
+
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class HttpCalls
+    {
+        public long issueCalls;
+        public long searchCalls;
+        public long queryCalls;
+
+        /**
+         * JMH reports the counters as they are at the end of each iteration.
+         */
+        @Setup(Level.Iteration)
+        public void reset()
+        {
+            issueCalls = 0;
+            searchCalls = 0;
+            queryCalls = 0;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException
+    {
+        workDirectory = Files.createTempDirectory("hackcracker-benchmark");
+        // the processor keeps its cache and state below the user home
+        System.setProperty("user.home", workDirectory.toString());
+        Map<String, String> resolutions = new HashMap<>();
+        Map<Integer, String> stateReasons = new HashMap<>();
+        for (int i = 0; i < annotations; i++)
+        {
+            resolutions.put(issue(i), i % EVERY_NTH_ISSUE_RESOLVED == 0 ? "Fixed" : null);
+            stateReasons.put(i + 1, i % EVERY_NTH_ISSUE_RESOLVED == 0 ? "COMPLETED" : null);
+        }
+        jira = new StubJiraServer(resolutions, latencyMillis);
+        jira.start();
+        gitHub = new StubGitHubServer(stateReasons, latencyMillis);
+        gitHub.start();
+        Path configuration = workDirectory.resolve("issue_trackers.xml");
+        Files.write(configuration, Arrays.asList(
+                "<?xml version=\"1.0\" encoding=\"UTF-8\"?>",
+                "<configuration cacheTtlMinutes=\"" + cacheTtlMinutes + "\" />"), StandardCharsets.UTF_8);
+        System.setProperty("hackcracker.configuration", configuration.toString());
+        sources = generateSources(workDirectory.resolve("src"));
+        Files.createDirectories(workDirectory.resolve("classes"));
+        Files.createDirectories(workDirectory.resolve("generated"));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException
+    {
+        jira.stop();
+        gitHub.stop();
+        try (Stream<Path> files = Files.walk(workDirectory))
+        {
+            for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator)
+            {
+                Files.delete(file);
+            }
+        }
+    }
+
+    @Benchmark
+    public boolean processor(HttpCalls calls) throws IOException
+    {
+        int issueCalls = jira.getIssueCalls();
+        int searchCalls = jira.getSearchCalls();
+        int queryCalls = gitHub.getQueryCalls();
+        boolean toReturn = compile(new FixForIssueProcessor());
+        calls.issueCalls += jira.getIssueCalls() - issueCalls;
+        calls.searchCalls += jira.getSearchCalls() - searchCalls;
+        calls.queryCalls += gitHub.getQueryCalls() - queryCalls;
+        return toReturn;
+    }
+
+    @Benchmark
+    public boolean baseline() throws IOException
+    {
+        return compile(new NoOpProcessor());
+    }
+
+    private boolean compile(Processor processor) throws IOException
+    {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        try (StandardJavaFileManager files = compiler.getStandardFileManager(null, Locale.ROOT, StandardCharsets.UTF_8))
+        {
+            JavaCompiler.CompilationTask task = compiler.getTask(null, files,
+                    diagnostic -> {
+                        // resolved issues are reported as errors, that is expected
+                    },
+                    Arrays.asList("-proc:only",
+                            "-classpath", System.getProperty("java.class.path"),
+                            "-d", workDirectory.resolve("classes").toString(),
+                            "-s", workDirectory.resolve("generated").toString()),
+                    null, files.getJavaFileObjectsFromFiles(sources));
+            task.setProcessors(Collections.singletonList(processor));
+            return task.call();
+        }
+    }
+
+    private List<File> generateSources(Path directory) throws IOException
+    {
+        Path packageDirectory = Files.createDirectories(directory.resolve("bench"));
+        List<File> toReturn = new ArrayList<>();
+        for (int first = 0; first < annotations; first += METHODS_PER_CLASS)
+        {
+            String className = "Hacks" + first;
+            Path file = packageDirectory.resolve(className + ".java");
+            try (Writer out = Files.newBufferedWriter(file, StandardCharsets.UTF_8))
+            {
+                out.write("package bench;\n\nimport de.psi.pjf.hackcracker.annotation.FixForIssue;\n");
+                out.write("import static de.psi.pjf.hackcracker.annotation.FixForIssue.IssueTrackerType.*;\n\n");
+                out.write("public class " + className + "\n{\n");
+                for (int i = first; i < Math.min(first + METHODS_PER_CLASS, annotations); i++)
+                {
+                    out.write("GITHUB".equals(trackerType)
+                            ? "    @FixForIssue(url = \"" + gitHub.getUrl() + "\", issue = \"" + (i + 1) + "\", trackerType = GITHUB)\n"
+                            : "    @FixForIssue(url = \"" + jira.getUrl() + "\", issue = \"" + issue(i) + "\")\n");
+                    out.write("    void hack" + i + "()\n    {\n    }\n\n");
+                }
+                out.write("}\n");
+            }
+            toReturn.add(file.toFile());
+        }
+        return toReturn;
+    }
+
+    private static String issue(int i)
+    {
+        return "BENCH-" + (i + 1);
+    }
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException
+    {
+        new Runner(new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .include(FixForIssueProcessorBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+
+    @SupportedAnnotationTypes({
+        "de.psi.pjf.hackcracker.annotation.FixForIssue",
+        "de.psi.pjf.hackcracker.annotation.FixForIssues",
+        "de.psi.pjf.hackcracker.annotation.IgnoreIssueResolved"})
+    private static class NoOpProcessor extends AbstractProcessor
+    {
+        @Override
+        public SourceVersion getSupportedSourceVersion()
+        {
+            return SourceVersion.latestSupported();
+        }
+
+        @Override
+        public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv)
+        {
+            return true;
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package de.psi.pjf.hackcracker.benchmark;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.codehaus.jettison.json.JSONException;
+import org.codehaus.jettison.json.JSONObject;
+
+/**
+ * GitHub Enterprise on the loopback interface, answering the GraphQL issue queries
+ * of one repository from a fixed set of issues after a configurable latency. Like
+ * GitHub it answers issues that do not exist with null and a not found error.
+ */
+public class StubGitHubServer
+{
+    private static final String GRAPHQL_PATH = "/api/graphql";
+    private static final Pattern ISSUE = Pattern.compile("(\\w+)\\s*:\\s*issue\\s*\\(\\s*number\\s*:\\s*(\\d+)\\s*\\)");
+
+    private final Map<Integer, String> stateReasons;
+    private final long latencyMillis;
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newCachedThreadPool(r -> {
+        Thread thread = new Thread(r, "stub-github");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicInteger queryCalls = new AtomicInteger();
+
+    /**
+     * @param aStateReasons state reason by issue number, {@code COMPLETED} for
+     * example, null for open issues.
+     * @param aLatencyMillis time every answer is delayed by.
+     */
+    public StubGitHubServer(Map<Integer, String> aStateReasons, long aLatencyMillis) throws IOException
+    {
+        stateReasons = aStateReasons;
+        latencyMillis = aLatencyMillis;
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext(GRAPHQL_PATH, this::handleQuery);
+        server.setExecutor(executor);
+    }
+
+    public void start()
+    {
+        server.start();
+    }
+
+    public void stop()
+    {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    /**
+     * @return url of the repository to use in {@code @FixForIssue}, ending with a slash.
+     */
+    public String getUrl()
+    {
+        return "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort() + "/bench/hacks/";
+    }
+
+    public int getQueryCalls()
+    {
+        return queryCalls.get();
+    }
+
+    private void handleQuery(HttpExchange exchange) throws IOException
+    {
+        queryCalls.incrementAndGet();
+        String query;
+        try
+        {
+            query = new JSONObject(read(exchange.getRequestBody())).getString("query");
+        }
+        catch (JSONException ex)
+        {
+            respond(exchange, 400, "{\"message\":\"Problems parsing JSON\"}");
+            return;
+        }
+        StringBuilder data = new StringBuilder();
+        StringBuilder errors = new StringBuilder();
+        Matcher issue = ISSUE.matcher(query);
+        while (issue.find())
+        {
+            int number = Integer.parseInt(issue.group(2));
+            data.append(data.length() == 0 ? "" : ",").append('"').append(issue.group(1)).append("\":");
+            if (!stateReasons.containsKey(number))
+            {
+                data.append("null");
+                errors.append(errors.length() == 0 ? "" : ",")
+                        .append("{\"type\":\"NOT_FOUND\",\"path\":[\"repository\",\"").append(issue.group(1))
+                        .append("\"],\"message\":\"Could not resolve to an issue with the number of ")
+                        .append(number).append(".\"}");
+                continue;
+            }
+            String stateReason = stateReasons.get(number);
+            data.append("{\"state\":\"").append(stateReason == null ? "OPEN" : "CLOSED")
+                    .append("\",\"stateReason\":").append(stateReason == null ? "null" : "\"" + stateReason + "\"")
+                    .append(",\"title\":\"benchmark issue ").append(number).append("\"}");
+        }
+        respond(exchange, 200, "{\"data\":{\"repository\":{" + data + "}}"
+                + (errors.length() == 0 ? "" : ",\"errors\":[" + errors + "]") + "}");
+    }
+
+    private void respond(HttpExchange exchange, int status, String body) throws IOException
+    {
+        try
+        {
+            TimeUnit.MILLISECONDS.sleep(latencyMillis);
+        }
+        catch (InterruptedException ex)
+        {
+            Thread.currentThread().interrupt();
+        }
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody())
+        {
+            out.write(bytes);
+        }
+    }
+
+    private static String read(InputStream body) throws IOException
+    {
+        ByteArrayOutputStream content = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        for (int read = body.read(buffer); read >= 0; read = body.read(buffer))
+        {
+            content.write(buffer, 0, read);
+        }
+        return new String(content.toByteArray(), StandardCharsets.UTF_8);
+    }
+}
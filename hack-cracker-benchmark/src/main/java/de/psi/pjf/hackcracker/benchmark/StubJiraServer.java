@@ -0,0 +1,308 @@
+package de.psi.pjf.hackcracker.benchmark;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.codehaus.jettison.json.JSONArray;
+import org.codehaus.jettison.json.JSONException;
+import org.codehaus.jettison.json.JSONObject;
+
+/**
+ * Jira on the loopback interface, answering {@code /rest/api/2/issue/<key>} and
+ * {@code /rest/api/2/search} with {@code key in (...)} queries from a fixed set
+ * of issues after a configurable latency, so benchmarks never leave the machine.
+ * Like jira it rejects searches for unknown keys with a bad request. All issues
+ * have been updated long ago, so searches restricted to recently updated issues
+ * with {@code updated >= "-<n>m"} usually find none, searches restricted with
+ * {@code resolution in (...)} only issues with one of the resolutions. Whole issues come with a
+ * description and comments, searches restricted to some fields without them.
+ */
+public class StubJiraServer
+{
+    private static final String ISSUE_PATH = "/rest/api/2/issue/";
+    private static final String SEARCH_PATH = "/rest/api/2/search";
+    private static final Pattern KEY_LIST = Pattern.compile("key\\s+in\\s*\\(([^)]*)\\)", Pattern.CASE_INSENSITIVE);
+    private static final Pattern RESOLUTION_IN = Pattern.compile("resolution\\s+in\\s*\\(([^)]*)\\)", Pattern.CASE_INSENSITIVE);
+    private static final Pattern UPDATED_SINCE = Pattern.compile("updated\\s*>=\\s*\"-(\\d+)m\"", Pattern.CASE_INSENSITIVE);
+    private static final long UPDATED = Instant.parse("2016-01-02T00:00:00Z").toEpochMilli();
+    private static final int COMMENTS = 20;
+    private static final String TEXT = String.join(" ", Collections.nCopies(40, "lorem ipsum dolor sit amet"));
+    private static final Pattern QUOTED = Pattern.compile("\"((?:[^\"\\\\]|\\\\.)*)\"");
+
+    private final Map<String, String> resolutions;
+    private final long latencyMillis;
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newCachedThreadPool(r -> {
+        Thread thread = new Thread(r, "stub-jira");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicInteger issueCalls = new AtomicInteger();
+    private final AtomicInteger searchCalls = new AtomicInteger();
+
+    /**
+     * @param aResolutions resolution by issue key, null for unresolved issues.
+     * @param aLatencyMillis time every answer is delayed by.
+     */
+    public StubJiraServer(Map<String, String> aResolutions, long aLatencyMillis) throws IOException
+    {
+        resolutions = aResolutions;
+        latencyMillis = aLatencyMillis;
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext(ISSUE_PATH, this::handleIssue);
+        server.createContext(SEARCH_PATH, this::handleSearch);
+        server.setExecutor(executor);
+    }
+
+    public void start()
+    {
+        server.start();
+    }
+
+    public void stop()
+    {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    /**
+     * @return url to use in {@code @FixForIssue}, ending with a slash.
+     */
+    public String getUrl()
+    {
+        return "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort() + "/";
+    }
+
+    public int getIssueCalls()
+    {
+        return issueCalls.get();
+    }
+
+    public int getSearchCalls()
+    {
+        return searchCalls.get();
+    }
+
+    private void handleIssue(HttpExchange exchange) throws IOException
+    {
+        issueCalls.incrementAndGet();
+        String key = exchange.getRequestURI().getPath().substring(ISSUE_PATH.length()).toUpperCase(Locale.ROOT);
+        if (!resolutions.containsKey(key))
+        {
+            respond(exchange, 404, "{\"errorMessages\":[\"Issue Does Not Exist\"],\"errors\":{}}");
+            return;
+        }
+        respond(exchange, 200, issueJson(key, true));
+    }
+
+    private void handleSearch(HttpExchange exchange) throws IOException
+    {
+        searchCalls.incrementAndGet();
+        Map<String, String> parameters;
+        try
+        {
+            parameters = "POST".equals(exchange.getRequestMethod())
+                    ? parseBody(exchange.getRequestBody())
+                    : parseQuery(exchange.getRequestURI().getRawQuery());
+        }
+        catch (JSONException ex)
+        {
+            respond(exchange, 400, "{\"errorMessages\":[\"" + ex.getMessage() + "\"],\"errors\":{}}");
+            return;
+        }
+        Matcher keyList = KEY_LIST.matcher(parameters.getOrDefault("jql", ""));
+        List<String> keys = new ArrayList<>();
+        if (keyList.find())
+        {
+            Matcher quoted = QUOTED.matcher(keyList.group(1));
+            while (quoted.find())
+            {
+                keys.add(quoted.group(1).toUpperCase(Locale.ROOT));
+            }
+        }
+        for (String key : keys)
+        {
+            if (!resolutions.containsKey(key))
+            {
+                respond(exchange, 400, "{\"errorMessages\":[\"An issue with key '" + key
+                        + "' does not exist for field 'key'.\"],\"errors\":{}}");
+                return;
+            }
+        }
+        Matcher updatedSince = UPDATED_SINCE.matcher(parameters.getOrDefault("jql", ""));
+        if (updatedSince.find()
+                && UPDATED < System.currentTimeMillis() - TimeUnit.MINUTES.toMillis(Long.parseLong(updatedSince.group(1))))
+        {
+            keys.clear();
+        }
+        Matcher resolutionIn = RESOLUTION_IN.matcher(parameters.getOrDefault("jql", ""));
+        if (resolutionIn.find())
+        {
+            Set<String> resolved = new HashSet<>();
+            Matcher quoted = QUOTED.matcher(resolutionIn.group(1));
+            while (quoted.find())
+            {
+                resolved.add(quoted.group(1));
+            }
+            keys.removeIf(key -> !resolved.contains(resolutions.get(key)));
+        }
+        int startAt = Integer.parseInt(parameters.getOrDefault("startAt", "0"));
+        int maxResults = Integer.parseInt(parameters.getOrDefault("maxResults", "50"));
+        List<String> page = keys.subList(Math.min(startAt, keys.size()), Math.min(startAt + maxResults, keys.size()));
+        boolean wholeIssues = isWholeIssueRequested(parameters.get("fields"));
+        StringBuilder body = new StringBuilder()
+                .append("{\"expand\":\"names,schema\",\"startAt\":").append(startAt)
+                .append(",\"maxResults\":").append(maxResults)
+                .append(",\"total\":").append(keys.size())
+                .append(",\"issues\":[");
+        for (int i = 0; i < page.size(); i++)
+        {
+            body.append(i == 0 ? "" : ",").append(issueJson(page.get(i), wholeIssues));
+        }
+        respond(exchange, 200, body.append("]}").toString());
+    }
+
+    /**
+     * @param fields fields requested by a search, separated by commas.
+     * @return true if the search asks for the description and comments, which
+     * jira returns by default.
+     */
+    private static boolean isWholeIssueRequested(String fields)
+    {
+        return fields == null || Arrays.stream(fields.split(","))
+                .map(String::trim)
+                .anyMatch(field -> field.equals("*all") || field.equals("comment"));
+    }
+
+    /**
+     * @param wholeIssue true to answer with the description and comments.
+     */
+    private String issueJson(String key, boolean wholeIssue)
+    {
+        String base = getUrl() + "rest/api/2/";
+        int id = 10000 + Math.abs(key.hashCode() % 10000);
+        String resolution = resolutions.get(key);
+        return "{\"expand\":\"\",\"id\":\"" + id + "\",\"self\":\"" + base + "issue/" + id + "\",\"key\":\"" + key + "\","
+                + "\"fields\":{"
+                + "\"summary\":\"benchmark issue " + key + "\","
+                + (wholeIssue ? "\"description\":\"" + TEXT + "\"," : "")
+                + "\"issuetype\":{\"self\":\"" + base + "issuetype/1\",\"id\":\"1\",\"name\":\"Bug\",\"subtask\":false,"
+                + "\"description\":\"\",\"iconUrl\":\"" + base + "bug.png\"},"
+                + "\"project\":{\"self\":\"" + base + "project/10000\",\"id\":\"10000\",\"key\":\"BENCH\",\"name\":\"Benchmark\"},"
+                + "\"status\":{\"self\":\"" + base + "status/1\",\"id\":\"1\",\"name\":\"" + (resolution == null ? "Open" : "Closed")
+                + "\",\"description\":\"\",\"iconUrl\":\"" + base + "status.png\"},"
+                + "\"resolution\":" + (resolution == null ? "null" : "{\"self\":\"" + base + "resolution/1\",\"id\":\"1\",\"name\":\""
+                + resolution + "\",\"description\":\"\"}") + ","
+                + "\"created\":\"2016-01-01T00:00:00.000+0000\","
+                + "\"updated\":\"2016-01-02T00:00:00.000+0000\","
+                + "\"labels\":[]"
+                + (wholeIssue ? ",\"comment\":" + commentsJson(base, id) : "")
+                + "}}";
+    }
+
+    private static String commentsJson(String base, int issueId)
+    {
+        StringBuilder toReturn = new StringBuilder("{\"startAt\":0,\"maxResults\":").append(COMMENTS)
+                .append(",\"total\":").append(COMMENTS).append(",\"comments\":[");
+        for (int i = 0; i < COMMENTS; i++)
+        {
+            toReturn.append(i == 0 ? "" : ",")
+                    .append("{\"self\":\"").append(base).append("issue/").append(issueId).append("/comment/").append(i)
+                    .append("\",\"id\":\"").append(i).append("\",")
+                    .append("\"author\":{\"self\":\"").append(base).append("user?username=bench\",")
+                    .append("\"name\":\"bench\",\"displayName\":\"Benchmark\"},")
+                    .append("\"body\":\"").append(TEXT).append("\",")
+                    .append("\"created\":\"2016-01-01T00:00:00.000+0000\",")
+                    .append("\"updated\":\"2016-01-01T00:00:00.000+0000\"}");
+        }
+        return toReturn.append("]}").toString();
+    }
+
+    private void respond(HttpExchange exchange, int status, String body) throws IOException
+    {
+        try
+        {
+            TimeUnit.MILLISECONDS.sleep(latencyMillis);
+        }
+        catch (InterruptedException ex)
+        {
+            Thread.currentThread().interrupt();
+        }
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json;charset=UTF-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody())
+        {
+            out.write(bytes);
+        }
+    }
+
+    private static Map<String, String> parseQuery(String rawQuery) throws UnsupportedEncodingException
+    {
+        Map<String, String> toReturn = new HashMap<>();
+        if (rawQuery == null)
+        {
+            return toReturn;
+        }
+        for (String parameter : rawQuery.split("&"))
+        {
+            int separator = parameter.indexOf('=');
+            if (separator > 0)
+            {
+                toReturn.put(URLDecoder.decode(parameter.substring(0, separator), "UTF-8"),
+                        URLDecoder.decode(parameter.substring(separator + 1), "UTF-8"));
+            }
+        }
+        return toReturn;
+    }
+
+    private static Map<String, String> parseBody(InputStream body) throws IOException, JSONException
+    {
+        ByteArrayOutputStream content = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        for (int read = body.read(buffer); read >= 0; read = body.read(buffer))
+        {
+            content.write(buffer, 0, read);
+        }
+        JSONObject json = new JSONObject(new String(content.toByteArray(), StandardCharsets.UTF_8));
+        Map<String, String> toReturn = new HashMap<>();
+        toReturn.put("jql", json.optString("jql", ""));
+        toReturn.put("startAt", Integer.toString(json.optInt("startAt", 0)));
+        toReturn.put("maxResults", Integer.toString(json.optInt("maxResults", 50)));
+        JSONArray fields = json.optJSONArray("fields");
+        if (fields != null)
+        {
+            List<String> names = new ArrayList<>();
+            for (int i = 0; i < fields.length(); i++)
+            {
+                names.add(fields.optString(i));
+            }
+            toReturn.put("fields", String.join(",", names));
+        }
+        return toReturn;
+    }
+}
@@ -0,0 +1,144 @@
+package de.psi.pjf.hackcracker.maven;
+
+import de.psi.pjf.hackcracker.annotation.configuration.IssueTrackerConfiguration;
+import de.psi.pjf.hackcracker.jira.IssuePrefetcher;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugins.annotations.LifecyclePhase;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.project.MavenProject;
+
+/**
+ * Looks up the issues of all {@code @FixForIssue} annotations in the sources of
+ * the whole reactor before anything is compiled, in batches sent to all issue
+ * trackers in parallel. The statuses end up in the issue status cache shared by
+ * all compilations on the machine, so the compilers of the modules find every
+ * issue there instead of calling the issue trackers one module after another.
+ * Bound to the parent pom of the reactor, the goal runs only once, in the project
+ * the build has been started in:
+ * {@code
+ *  <plugin>
+ *      <groupId>de.psi.pjf</groupId>
+ *      <artifactId>hack-cracker-maven-plugin</artifactId>
+ *      <executions>
+ *          <execution>
+ *              <goals>
+ *                  <goal>prefetch</goal>
+ *              </goals>
+ *          </execution>
+ *      </executions>
+ *  </plugin>
+ * }
+ * The issue tracker configuration is taken from the system property
+ * {@code hackcracker.configuration} like in the annotation processor.
+ */
+@Mojo(name = "prefetch", defaultPhase = LifecyclePhase.INITIALIZE, threadSafe = true)
+public class PrefetchMojo extends AbstractMojo
+{
+    @Parameter(defaultValue = "${project}", readonly = true, required = true)
+    private MavenProject project;
+
+    @Parameter(defaultValue = "${reactorProjects}", readonly = true, required = true)
+    private List<MavenProject> reactorProjects;
+
+    /**
+     * Offline snapshot to write as well, for later builds without access to the issue trackers.
+     * With the extension {@code .idx} it is written as binary index, which compilations can also
+     * consult before the cache with the {@code statusIndex} attribute of the configuration.
+     */
+    @Parameter(property = "hackcracker.prefetch.snapshot")
+    private File snapshotFile;
+
+    /**
+     * Fails the build if issues could not be retrieved, instead of leaving them to the compilers.
+     */
+    @Parameter(property = "hackcracker.prefetch.failOnError", defaultValue = "false")
+    private boolean failOnError;
+
+    @Parameter(property = "hackcracker.prefetch.skip", defaultValue = "false")
+    private boolean skip;
+
+    @Override
+    public void execute() throws MojoExecutionException, MojoFailureException
+    {
+        if (skip)
+        {
+            getLog().info("hackcracker prefetch is skipped");
+            return;
+        }
+        if (!project.isExecutionRoot())
+        {
+            getLog().debug("issues have been prefetched for the whole reactor already");
+            return;
+        }
+        IssueTrackerConfiguration configuration = IssueTrackerConfiguration.getConfiguration();
+        if (configuration.isSwitchOff())
+        {
+            getLog().info("hackcracker is switched off, no issues are prefetched");
+            return;
+        }
+        if (configuration.getCacheTtl().isZero() && snapshotFile == null)
+        {
+            getLog().warn("the issue status cache is switched off with cacheTtlMinutes=\"0\", "
+                    + "the compilers will call the issue trackers again");
+        }
+        Set<Path> sources = collectSourceRoots();
+        IssuePrefetcher.Result result;
+        try
+        {
+            result = new IssuePrefetcher(configuration)
+                    .prefetch(sources, snapshotFile == null ? null : snapshotFile.toPath());
+        }
+        catch (IOException ex)
+        {
+            throw new MojoExecutionException("the sources of the reactor could not be scanned", ex);
+        }
+        getLog().info(result.getIssues() + " issues found in " + sources.size() + " source directories, "
+                + (result.getIssues() - result.getNotRetrieved().size()) + " retrieved"
+                + (snapshotFile == null ? "" : ", snapshot " + snapshotFile + " holds " + result.getSnapshotSize() + " issues"));
+        if (result.getNotRetrieved().isEmpty())
+        {
+            return;
+        }
+        String message = "could not retrieve " + result.getNotRetrieved().size() + " issues: " + result.getNotRetrieved()
+                + result.getFallbackMessage().map(m -> "\n" + m).orElse("");
+        if (failOnError)
+        {
+            throw new MojoFailureException(message);
+        }
+        getLog().warn(message);
+    }
+
+    private Set<Path> collectSourceRoots()
+    {
+        Set<Path> toReturn = new LinkedHashSet<>();
+        for (MavenProject reactorProject : reactorProjects)
+        {
+            addExisting(toReturn, reactorProject.getCompileSourceRoots());
+            addExisting(toReturn, reactorProject.getTestCompileSourceRoots());
+        }
+        return toReturn;
+    }
+
+    private static void addExisting(Set<Path> roots, List<String> toAdd)
+    {
+        for (String root : toAdd)
+        {
+            Path path = Paths.get(root);
+            if (Files.isDirectory(path))
+            {
+                roots.add(path);
+            }
+        }
+    }
+}